@@ -0,0 +1,61 @@
+package com.havulinna.collections;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the SmartList operations used by the game. The sizes correspond to
+ * the neighbors of a square, a HARD minefield and a large custom board.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SmartListBenchmark {
+
+    @Param({ "8", "400", "100000" })
+    public int size;
+
+    private SmartList<Integer> list;
+
+    @Setup
+    public void createList() {
+        list = new SmartList<Integer>();
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+    }
+
+    @Benchmark
+    public SmartList<Integer> select() {
+        return list.select(value -> value % 2 == 0);
+    }
+
+    @Benchmark
+    public int count() {
+        return list.count(value -> value % 2 == 0);
+    }
+
+    /**
+     * Nothing matches, so the whole list is scanned.
+     */
+    @Benchmark
+    public boolean containsAny() {
+        return list.containsAny(value -> value < 0);
+    }
+
+    @Benchmark
+    public SmartList<Integer> shuffle() {
+        return list.shuffle();
+    }
+}
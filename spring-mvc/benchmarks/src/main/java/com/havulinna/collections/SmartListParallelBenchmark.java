@@ -0,0 +1,84 @@
+package com.havulinna.collections;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the sequential SmartList operations to their parallel variants
+ * forced to run in parallel at every size, to find the size where the
+ * parallel variants start to pay off on the machine at hand. The parallel
+ * variants fall back to the sequential operations below
+ * {@link ParallelRanges#THRESHOLD}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SmartListParallelBenchmark {
+
+    @Param({ "1024", "8192", "32768", "131072", "1048576" })
+    public int size;
+
+    private SmartList<Integer> list;
+
+    @Setup
+    public void createList() {
+        list = new SmartList<Integer>();
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+    }
+
+    @Benchmark
+    public SmartList<Integer> select() {
+        return list.select(value -> value % 2 == 0);
+    }
+
+    @Benchmark
+    public SmartList<Integer> parallelSelect() {
+        return list.parallelSelect(value -> value % 2 == 0, 0);
+    }
+
+    @Benchmark
+    public int count() {
+        return list.count(value -> value % 2 == 0);
+    }
+
+    @Benchmark
+    public int parallelCount() {
+        return list.parallelCount(value -> value % 2 == 0, 0);
+    }
+
+    /**
+     * Nothing matches, so the whole list is scanned.
+     */
+    @Benchmark
+    public boolean anyMatch() {
+        return list.anyMatch(value -> value < 0);
+    }
+
+    @Benchmark
+    public boolean parallelAnyMatch() {
+        return list.parallelAnyMatch(value -> value < 0, 0);
+    }
+
+    @Benchmark
+    public SmartList<Integer> shuffle() {
+        return list.shuffle();
+    }
+
+    @Benchmark
+    public SmartList<Integer> parallelShuffle() {
+        return list.parallelShuffle(0);
+    }
+}
@@ -0,0 +1,33 @@
+package com.havulinna.minesweeper.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks in throughput mode with the GC profiler, so each result
+ * reports both operations per second and bytes allocated per operation.
+ *
+ * Any JMH command line options are accepted as well, for example a regular
+ * expression to run only some of the benchmarks:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SmartList
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .mode(Mode.Throughput)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,46 @@
+package com.havulinna.minesweeper.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creating new games, which is dominated by placing the mines.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GameBenchmark {
+
+    @Param({ "EASY", "FAIR", "HARD" })
+    public Difficulty difficulty;
+
+    @Benchmark
+    public Game newGame() {
+        return new Game(difficulty);
+    }
+
+    /**
+     * Custom board sizes with every fifth square mined.
+     */
+    @State(Scope.Benchmark)
+    public static class LargeBoard {
+
+        @Param({ "100", "1000" })
+        public int size;
+    }
+
+    @Benchmark
+    public Game newLargeGame(LargeBoard board) {
+        return new Game(board.size, board.size, board.size * board.size / 5);
+    }
+}
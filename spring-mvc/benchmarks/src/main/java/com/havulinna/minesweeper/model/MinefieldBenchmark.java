@@ -0,0 +1,52 @@
+package com.havulinna.minesweeper.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.havulinna.collections.SmartList;
+
+/**
+ * Measures listing the neighbors of a square in the middle and in the corner
+ * of a HARD minefield, and listing every square of it.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MinefieldBenchmark {
+
+    private Minefield minefield;
+    private Square middle;
+    private Square corner;
+
+    @Setup
+    public void createMinefield() {
+        minefield = new Game(Difficulty.HARD).getMinefield();
+        middle = minefield.getSquare(10, 10);
+        corner = minefield.getSquare(0, 0);
+    }
+
+    @Benchmark
+    public SmartList<Square> getNeighborsInTheMiddle() {
+        return minefield.getNeighbors(middle);
+    }
+
+    @Benchmark
+    public SmartList<Square> getNeighborsInTheCorner() {
+        return minefield.getNeighbors(corner);
+    }
+
+    @Benchmark
+    public int countMinesOfSquares() {
+        return minefield.getSquares().count(Square::isMine);
+    }
+}
@@ -0,0 +1,65 @@
+package com.havulinna.minesweeper.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures opening squares on a board whose only mines fill the last row.
+ * Opening a square next to the mines opens just that square, while opening
+ * the top left corner floods every other row.
+ *
+ * Opening a square changes the game for good, so each operation restores a
+ * fresh game first. {@link #restore()} measures the restoring alone and
+ * should be subtracted from the other results.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OpenSquareBenchmark {
+
+    @Param({ "20", "200" })
+    public int size;
+
+    private long[] mines;
+    private long[] empty;
+
+    @Setup
+    public void createLayout() {
+        int words = (size * size + 63) >>> 6;
+        mines = new long[words];
+        empty = new long[words];
+        for (int index = (size - 1) * size; index < size * size; index++) {
+            mines[index >>> 6] |= 1L << index;
+        }
+    }
+
+    @Benchmark
+    public Game restore() {
+        return newGame();
+    }
+
+    @Benchmark
+    public int openSingle() {
+        return newGame().openSquare(size - 2, 0);
+    }
+
+    @Benchmark
+    public int openFlood() {
+        return newGame().openSquare(0, 0);
+    }
+
+    private Game newGame() {
+        return new Game(Minefield.fromBitsets(size, size, mines, empty, empty), 0);
+    }
+}
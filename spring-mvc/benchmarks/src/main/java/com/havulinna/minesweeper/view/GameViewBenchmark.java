@@ -0,0 +1,73 @@
+package com.havulinna.minesweeper.view;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.havulinna.minesweeper.model.Difficulty;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Move;
+
+/**
+ * Measures building the view of a game and rendering the board rows that the
+ * game page template writes as they are.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameViewBenchmark {
+
+    /**
+     * A difficulty, or the rows and columns of a custom board with every
+     * fifth square mined.
+     */
+    @Param({ "EASY", "HARD", "500x500" })
+    public String board;
+
+    private Game game;
+
+    /**
+     * Opens and flags some squares, so that the view renders squares in
+     * every state.
+     */
+    @Setup
+    public void createGame() {
+        int separator = board.indexOf('x');
+        if (separator < 0) {
+            game = new Game(Difficulty.valueOf(board));
+        } else {
+            int boardRows = Integer.parseInt(board.substring(0, separator));
+            int boardCols = Integer.parseInt(board.substring(separator + 1));
+            game = new Game(boardRows, boardCols, boardRows * boardCols / 5);
+        }
+        int rows = game.getMinefield().getHeight();
+        int cols = game.getMinefield().getWidth();
+        for (int row = 0; row < rows; row += 4) {
+            for (int col = 0; col < cols; col += 4) {
+                if (!game.getMinefield().isMine(row, col) && !game.getMinefield().isOpen(row, col)) {
+                    game.openSquare(row, col);
+                } else if (!game.getMinefield().isOpen(row, col)) {
+                    game.toggleFlag(game.getMinefield().getSquare(row, col));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void renderBoardRows(Blackhole blackhole) {
+        for (String row : new GameView(game).getBoardRows(Move.Type.OPEN)) {
+            blackhole.consume(row);
+        }
+    }
+}
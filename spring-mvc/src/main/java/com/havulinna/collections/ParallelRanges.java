@@ -0,0 +1,100 @@
+package com.havulinna.collections;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the indexes of a list into leaves of consecutive indexes and runs an
+ * action for each leaf in the common fork/join pool. The leaves are forked by
+ * halving the range of leaves, so the pool can steal the larger halves first.
+ */
+final class ParallelRanges {
+
+    /**
+     * The smallest list worth processing in parallel. Shorter lists are
+     * processed faster in the calling thread than the tasks can be forked and
+     * joined. SmartListParallelBenchmark in the benchmarks module measures
+     * where the crossover lies on a given machine.
+     */
+    static final int THRESHOLD = 1 << 15;
+
+    /** The smallest number of elements processed by a single task */
+    private static final int MIN_LEAF_SIZE = 1 << 12;
+
+    /** The number of leaves per thread, so that uneven leaves can be balanced */
+    private static final int LEAVES_PER_THREAD = 4;
+
+    private ParallelRanges() {
+    }
+
+    /**
+     * @return true if a list of the given size should be processed in
+     *         parallel, given the threshold
+     */
+    static boolean isParallel(int size, int threshold) {
+        return size >= threshold && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * @return the number of leaves to split a list of the given size into
+     */
+    static int leafCount(int size) {
+        int leaves = ForkJoinPool.getCommonPoolParallelism() * LEAVES_PER_THREAD;
+        return Math.max(1, Math.min(leaves, size / MIN_LEAF_SIZE));
+    }
+
+    /**
+     * Splits the indexes of a list of the given size into the given number of
+     * leaves of nearly equal sizes, and runs the given action for each leaf.
+     * Returns once all of them have run. An exception thrown by the action is
+     * thrown from this method.
+     */
+    static void forEachLeaf(int size, int leaves, LeafAction action) {
+        ForkJoinPool.commonPool().invoke(new LeafTask(size, leaves, 0, leaves, action));
+    }
+
+    interface LeafAction {
+        /**
+         * @param leaf the number of the leaf, from zero up
+         * @param from the first index of the leaf
+         * @param to the index after the last index of the leaf
+         */
+        void run(int leaf, int from, int to);
+    }
+
+    private static class LeafTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int size;
+        private final int leaves;
+        private final int from;
+        private final int to;
+        private final LeafAction action;
+
+        /**
+         * A task for the leaves from the given leaf up to, but not including,
+         * the other given leaf.
+         */
+        LeafTask(int size, int leaves, int from, int to, LeafAction action) {
+            this.size = size;
+            this.leaves = leaves;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.run(from, startOf(from), startOf(to));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LeafTask(size, leaves, from, middle, action), new LeafTask(size, leaves, middle, to, action));
+        }
+
+        private int startOf(int leaf) {
+            return (int) ((long) leaf * size / leaves);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.havulinna.collections;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable list that shares its backing array with the lists made from
+ * it with {@link #plus(Object)}. Each list sees the first {@code size}
+ * elements of the array, and the number of slots claimed by any of the lists
+ * sharing the array is kept in a counter. Adding to a list whose size is that
+ * count claims the next slot and shares the array. Adding to an older list,
+ * or to a full array, copies the elements of the list into a new array.
+ *
+ * The counter is claimed with a compare and set, so lists may be added to
+ * from several threads. An element is written before the list that sees it
+ * is created, and the final fields of that list publish it safely.
+ */
+final class PersistentList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private final Object[] elements;
+    private final int size;
+    private final AtomicInteger claimed;
+
+    private PersistentList(Object[] elements, int size, AtomicInteger claimed) {
+        this.elements = elements;
+        this.size = size;
+        this.claimed = claimed;
+    }
+
+    static <T> PersistentList<T> copyOf(List<T> values) {
+        Object[] elements = values.toArray(new Object[Math.max(values.size() + 1, MIN_CAPACITY)]);
+        return new PersistentList<T>(elements, values.size(), new AtomicInteger(values.size()));
+    }
+
+    PersistentList<T> plus(T element) {
+        if (size < elements.length && claimed.compareAndSet(size, size + 1)) {
+            elements[size] = element;
+            return new PersistentList<T>(elements, size + 1, claimed);
+        }
+        Object[] copy = new Object[Math.max(2 * size, MIN_CAPACITY)];
+        System.arraycopy(elements, 0, copy, 0, size);
+        copy[size] = element;
+        return new PersistentList<T>(copy, size + 1, new AtomicInteger(size + 1));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
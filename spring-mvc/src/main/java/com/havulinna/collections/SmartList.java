@@ -8,8 +8,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * SmartList is a List implementation, which internally delegates all
@@ -20,12 +23,23 @@ import java.util.stream.Collectors;
  * The class contains the {@link #freeze()} method, which can be used to make
  * any list instance immutable on runtime.
  * 
+ * The query methods walk the backing list by index, which is always random
+ * access, and create no streams or intermediate lists. Their parallel
+ * variants split long lists between the threads of the common fork/join pool
+ * and fall back to the sequential methods for shorter lists.
+ * 
  * This class is safe to extend.
  */
 public class SmartList<T> implements List<T> {
 
     private static final String NULL_ERROR_MESSAGE = "Null values are not accepted by SmartList objects.";
+
+    /** The number of elements a parallel search checks between looking for matches found by others */
+    private static final int MATCH_CHECK_INTERVAL = 1024;
     private List<T> list = new ArrayList<T>();
+    private boolean frozen = false;
+    /** True for frozen lists and for views, which cannot be modified through this object */
+    private boolean readOnly = false;
 
     public SmartList() {
         super();
@@ -40,15 +54,68 @@ public class SmartList<T> implements List<T> {
         this.addAll(values);
     }
 
+    /**
+     * Constructs a read-only list backed by the given list, which must not
+     * contain null values. The list is frozen if nothing else can change the
+     * given list either, otherwise it is a view.
+     */
+    private SmartList(List<T> unmodifiable, boolean frozen) {
+        this.list = unmodifiable;
+        this.frozen = frozen;
+        this.readOnly = true;
+    }
+
+    /**
+     * Returns a read-only SmartList backed by the given list without copying
+     * it, so it takes constant time. Changes to the given list show through
+     * the returned list. The given list should support fast random access, and
+     * it must not contain null values, which is not verified.
+     */
+    public static <T> SmartList<T> viewOf(List<T> values) {
+        return new SmartList<T>(Collections.unmodifiableList(values), false);
+    }
+
     /**
      * Protects the List from future modifications by making the internal list
-     * object unmodifiable.
+     * object unmodifiable. A view is detached from the list it shows by
+     * copying the elements, as that list may still change.
      */
     public SmartList<T> freeze() {
-        this.list = Collections.unmodifiableList(this.list);
+        if (!frozen) {
+            this.list = Collections.unmodifiableList(readOnly ? new ArrayList<T>(this.list) : this.list);
+            this.frozen = true;
+            this.readOnly = true;
+        }
         return this;
     }
 
+    /**
+     * Returns a read-only view to this list without copying it. Changes to
+     * this list show through the view. A list that cannot be modified through
+     * itself, such as a frozen list or another view, is its own view.
+     */
+    public SmartList<T> view() {
+        return readOnly ? this : new SmartList<T>(Collections.unmodifiableList(list), false);
+    }
+
+    /**
+     * Returns a frozen list with the elements of this list followed by the
+     * given element, leaving this list unchanged. Lists built from each other
+     * with this method share their elements instead of copying them, so
+     * building a list one element at a time takes amortized constant time per
+     * element, even if earlier versions of the list are kept and added to.
+     *
+     * @throws IllegalArgumentException if the given element is null
+     * @see PersistentList
+     */
+    public SmartList<T> plus(T element) {
+        verifyNotNull(element);
+        PersistentList<T> persistent = list instanceof PersistentList
+                ? (PersistentList<T>) list
+                : PersistentList.copyOf(list);
+        return new SmartList<T>(persistent.plus(element), true);
+    }
+
     /**
      * Returns an unmodifiable view to this list.
      */
@@ -67,13 +134,72 @@ public class SmartList<T> implements List<T> {
 
 
     /**
-     * Shuffles the current list into random order.
+     * Shuffles the current list into random order. The random numbers come
+     * from the random generator of the calling thread, so lists can be
+     * shuffled on several threads at once without contending for one
+     * generator.
      * 
      * @return the list itself
-     * @see Collections#shuffle(List)
+     * @see Collections#shuffle(List, java.util.Random)
      */
     public SmartList<T> shuffle() {
-        Collections.shuffle(this);
+        Collections.shuffle(this, ThreadLocalRandom.current());
+        return this;
+    }
+
+    /**
+     * Shuffles the current list into random order like {@link #shuffle()},
+     * splitting the work between the threads of the common fork/join pool
+     * when the list is long enough to benefit from it. Each element gets a
+     * random key, and the elements are placed in the order of their keys. The
+     * keys are the random bits left over beside the index of the element, so
+     * on the rare ties between keys the elements keep their order.
+     * 
+     * @return the list itself
+     * @throws UnsupportedOperationException if the list is frozen or a view
+     */
+    public SmartList<T> parallelShuffle() {
+        return parallelShuffle(ParallelRanges.THRESHOLD);
+    }
+
+    /**
+     * @param threshold the smallest size of the list to shuffle in parallel
+     */
+    @SuppressWarnings("unchecked")
+    SmartList<T> parallelShuffle(int threshold) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Frozen lists and views cannot be shuffled");
+        }
+        final List<T> values = list;
+        final int size = values.size();
+        if (!ParallelRanges.isParallel(size, threshold)) {
+            return shuffle();
+        }
+
+        final long indexMask = (1L << (32 - Integer.numberOfLeadingZeros(size - 1))) - 1;
+        final int leaves = ParallelRanges.leafCount(size);
+        final SplittableRandom[] randoms = new SplittableRandom[leaves];
+        randoms[0] = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        for (int leaf = 1; leaf < leaves; leaf++) {
+            randoms[leaf] = randoms[0].split();
+        }
+
+        final long[] keys = new long[size];
+        ParallelRanges.forEachLeaf(size, leaves, (leaf, from, to) -> {
+            SplittableRandom random = randoms[leaf];
+            for (int i = from; i < to; i++) {
+                keys[i] = (random.nextLong() & ~indexMask) | i;
+            }
+        });
+        Arrays.parallelSort(keys);
+
+        // The list is not read-only, so it is the array list of this object and takes writes to distinct indexes
+        final Object[] elements = values.toArray();
+        ParallelRanges.forEachLeaf(size, leaves, (leaf, from, to) -> {
+            for (int i = from; i < to; i++) {
+                values.set(i, (T) elements[(int) (keys[i] & indexMask)]);
+            }
+        });
         return this;
     }
 
@@ -85,7 +211,15 @@ public class SmartList<T> implements List<T> {
      * @return A new SmartList containing matching items, or empty list if none match
      */
     public SmartList<T> select(Predicate<? super T> predicate) {
-        return new SmartList<T>(stream().filter(predicate).collect(Collectors.toList()));
+        SmartList<T> selected = new SmartList<T>();
+        for (int i = 0, size = list.size(); i < size; i++) {
+            T item = list.get(i);
+            if (predicate.test(item)) {
+                // The items of this list are known not to be null
+                selected.list.add(item);
+            }
+        }
+        return selected;
     }
 
     /**
@@ -94,14 +228,194 @@ public class SmartList<T> implements List<T> {
      * @return first object that matches, or null if no match
      */
     public Optional<T> find(Predicate<? super T> predicate) {
-        return stream().filter(predicate).findFirst();
+        for (int i = 0, size = list.size(); i < size; i++) {
+            T item = list.get(i);
+            if (predicate.test(item)) {
+                return Optional.of(item);
+            }
+        }
+        return Optional.empty();
     }
 
     /**
      * @return true if this list contains any elements that match the given predicate.
      */
     public boolean containsAny(Predicate<? super T> predicate) {
-        return find(predicate).isPresent();
+        return anyMatch(predicate);
+    }
+
+    /**
+     * @return true if any element of this list matches the given predicate
+     */
+    public boolean anyMatch(Predicate<? super T> predicate) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (predicate.test(list.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if every element of this list matches the given predicate,
+     *         or if this list is empty
+     */
+    public boolean allMatch(Predicate<? super T> predicate) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (!predicate.test(list.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of elements on this list that match the given predicate
+     */
+    public int count(Predicate<? super T> predicate) {
+        int count = 0;
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (predicate.test(list.get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Passes each element that matches the given predicate to the given
+     * action, in the order of this list, without collecting them to a list
+     * first.
+     */
+    public void forEachMatching(Predicate<? super T> predicate, Consumer<? super T> action) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            T item = list.get(i);
+            if (predicate.test(item)) {
+                action.accept(item);
+            }
+        }
+    }
+
+    /**
+     * Works like {@link #select(Predicate)}, but splits the list between the
+     * threads of the common fork/join pool when it is long enough to benefit
+     * from it. The predicate may be called on several threads at once. The
+     * matching values are returned in their original order.
+     */
+    public SmartList<T> parallelSelect(Predicate<? super T> predicate) {
+        return parallelSelect(predicate, ParallelRanges.THRESHOLD);
+    }
+
+    /**
+     * @param threshold the smallest size of the list to process in parallel
+     */
+    SmartList<T> parallelSelect(Predicate<? super T> predicate, int threshold) {
+        final List<T> values = list;
+        final int size = values.size();
+        if (!ParallelRanges.isParallel(size, threshold)) {
+            return select(predicate);
+        }
+
+        final int leaves = ParallelRanges.leafCount(size);
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        final List<T>[] parts = new List[leaves];
+        ParallelRanges.forEachLeaf(size, leaves, (leaf, from, to) -> {
+            List<T> part = new ArrayList<T>();
+            for (int i = from; i < to; i++) {
+                T item = values.get(i);
+                if (predicate.test(item)) {
+                    part.add(item);
+                }
+            }
+            parts[leaf] = part;
+        });
+
+        int total = 0;
+        for (List<T> part : parts) {
+            total += part.size();
+        }
+        SmartList<T> selected = new SmartList<T>();
+        selected.list = new ArrayList<T>(total);
+        for (List<T> part : parts) {
+            // The items of this list are known not to be null
+            selected.list.addAll(part);
+        }
+        return selected;
+    }
+
+    /**
+     * Works like {@link #count(Predicate)}, but splits the list between the
+     * threads of the common fork/join pool when it is long enough to benefit
+     * from it. The predicate may be called on several threads at once.
+     */
+    public int parallelCount(Predicate<? super T> predicate) {
+        return parallelCount(predicate, ParallelRanges.THRESHOLD);
+    }
+
+    /**
+     * @param threshold the smallest size of the list to process in parallel
+     */
+    int parallelCount(Predicate<? super T> predicate, int threshold) {
+        final List<T> values = list;
+        final int size = values.size();
+        if (!ParallelRanges.isParallel(size, threshold)) {
+            return count(predicate);
+        }
+
+        final int leaves = ParallelRanges.leafCount(size);
+        final int[] counts = new int[leaves];
+        ParallelRanges.forEachLeaf(size, leaves, (leaf, from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values.get(i))) {
+                    count++;
+                }
+            }
+            counts[leaf] = count;
+        });
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Works like {@link #anyMatch(Predicate)}, but splits the list between the
+     * threads of the common fork/join pool when it is long enough to benefit
+     * from it. Once a match is found, the other threads stop looking after at
+     * most {@value #MATCH_CHECK_INTERVAL} more elements. The predicate may be
+     * called on several threads at once.
+     */
+    public boolean parallelAnyMatch(Predicate<? super T> predicate) {
+        return parallelAnyMatch(predicate, ParallelRanges.THRESHOLD);
+    }
+
+    /**
+     * @param threshold the smallest size of the list to process in parallel
+     */
+    boolean parallelAnyMatch(Predicate<? super T> predicate, int threshold) {
+        final List<T> values = list;
+        final int size = values.size();
+        if (!ParallelRanges.isParallel(size, threshold)) {
+            return anyMatch(predicate);
+        }
+
+        final int leaves = ParallelRanges.leafCount(size);
+        final AtomicBoolean found = new AtomicBoolean();
+        ParallelRanges.forEachLeaf(size, leaves, (leaf, from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (i % MATCH_CHECK_INTERVAL == 0 && found.get()) {
+                    return;
+                }
+                if (predicate.test(values.get(i))) {
+                    found.set(true);
+                    return;
+                }
+            }
+        });
+        return found.get();
     }
 
     /**
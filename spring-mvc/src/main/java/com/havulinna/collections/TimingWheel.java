@@ -0,0 +1,125 @@
+package com.havulinna.collections;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * TimingWheel is a hashed timing wheel for expiring large amounts of items.
+ * Each item is placed into a slot by its deadline, one slot per tick, and
+ * advancing the wheel only visits the slots whose ticks have passed. The cost
+ * of expiring items therefore depends on the amount of expired items, not on
+ * the amount of items waiting in the wheel.
+ *
+ * Deadlines further away than one revolution of the wheel share their slot
+ * with earlier deadlines. Such items stay in the slot until a later revolution
+ * reaches their deadline.
+ *
+ * Items can be scheduled from any thread. Advancing and polling the wheel are
+ * serialized with each other.
+ */
+public class TimingWheel<T> {
+
+    private final Queue<Timeout<T>>[] slots;
+    private final long tickMillis;
+    /** The latest tick whose slot has been or is being drained */
+    private volatile long currentTick;
+
+    /**
+     * @param slotCount the number of slots in the wheel
+     * @param tickMillis the time span covered by each slot
+     * @param now the current time in milliseconds
+     */
+    public TimingWheel(int slotCount, long tickMillis, long now) {
+        if (slotCount <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("Slot count and tick length must be positive.");
+        }
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Queue<Timeout<T>>[] slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<Timeout<T>>();
+        }
+        this.slots = slots;
+        this.tickMillis = tickMillis;
+        this.currentTick = now / tickMillis;
+    }
+
+    /**
+     * Schedules the given item to expire at the given time. Deadlines that have
+     * already passed expire on the next tick.
+     */
+    public void schedule(T item, long deadline) {
+        // Rounding up guarantees the deadline has passed when the slot is reached
+        long tick = Math.max((deadline + tickMillis - 1) / tickMillis, currentTick + 1);
+        Timeout<T> timeout = new Timeout<T>(item, deadline);
+        slotOf(tick).add(timeout);
+
+        // The wheel may have reached the slot after the current tick was read. If the item is
+        // still there, it would wait for the next revolution, so it is moved to the next tick.
+        while (currentTick >= tick && slotOf(tick).remove(timeout)) {
+            tick = currentTick + 1;
+            slotOf(tick).add(timeout);
+        }
+    }
+
+    /**
+     * Moves the wheel forward to the given time and passes every item whose
+     * deadline has been reached to the given consumer. The consumer may
+     * schedule the item again.
+     */
+    public synchronized void advance(long now, Consumer<? super T> expired) {
+        long targetTick = now / tickMillis;
+        long firstTick = Math.max(currentTick + 1, targetTick - slots.length + 1);
+
+        for (long tick = firstTick; tick <= targetTick; tick++) {
+            // Published before the slot is drained, so that items scheduled meanwhile go to later slots
+            currentTick = tick;
+            Iterator<Timeout<T>> timeouts = slotOf(tick).iterator();
+            while (timeouts.hasNext()) {
+                Timeout<T> timeout = timeouts.next();
+                if (timeout.deadline <= now) {
+                    timeouts.remove();
+                    expired.accept(timeout.item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the item with the earliest slot, or null if the
+     * wheel is empty. Items in the same slot are returned in the order they
+     * were scheduled. The order is exact only for deadlines within one
+     * revolution of the wheel.
+     */
+    public synchronized T pollEarliest() {
+        for (int i = 1; i <= slots.length; i++) {
+            Timeout<T> timeout = slotOf(currentTick + i).poll();
+            if (timeout != null) {
+                return timeout.item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the time span covered by one revolution of the wheel
+     */
+    public long getRevolutionMillis() {
+        return tickMillis * slots.length;
+    }
+
+    private Queue<Timeout<T>> slotOf(long tick) {
+        return slots[(int) (tick % slots.length)];
+    }
+
+    private static final class Timeout<T> {
+        private final T item;
+        private final long deadline;
+
+        private Timeout(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
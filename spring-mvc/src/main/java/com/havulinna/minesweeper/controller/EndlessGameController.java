@@ -0,0 +1,101 @@
+package com.havulinna.minesweeper.controller;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.view.RedirectView;
+
+import com.havulinna.minesweeper.controller.response.GameModelAndView;
+import com.havulinna.minesweeper.exception.BadRequestException;
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.EndlessGame;
+import com.havulinna.minesweeper.model.EndlessMinefield;
+import com.havulinna.minesweeper.service.EndlessGameRepository;
+import com.havulinna.minesweeper.view.EndlessGameView;
+
+@Controller
+public class EndlessGameController {
+
+    private static final String ENDLESS_TEMPLATE = "endless";
+    private static final double MINE_DENSITY = 0.2;
+
+    /**
+     * The largest coordinate accepted from the user. Half of the range of the
+     * minefield leaves room for the window around the center and for flood
+     * fills spreading from the opened square.
+     */
+    private static final int MAX_COORDINATE = EndlessMinefield.MAX_COORDINATE / 2;
+
+    private final EndlessGameRepository repository;
+
+    @Autowired
+    public EndlessGameController(EndlessGameRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Creates a new {@link EndlessGame} with a random seed, stores the game,
+     * and redirects the user to that game.
+     */
+    @RequestMapping(value = "/endless/new", method = RequestMethod.POST)
+    public RedirectView startNewGame() {
+        EndlessGame newGame = new EndlessGame(ThreadLocalRandom.current().nextLong(), MINE_DENSITY);
+        String gameId = repository.store(newGame);
+        return new RedirectView("/endless/" + gameId);
+    }
+
+    /**
+     * Renders the window of the endless game centered on the given square.
+     *
+     * @throws NotFoundException if the given ID matches no game
+     * @throws BadRequestException if the center is too far from the origin
+     */
+    @RequestMapping(value = "/endless/{gameId}", method = RequestMethod.GET)
+    public ModelAndView showGame(
+            @PathVariable("gameId") String id,
+            @RequestParam(value = "row", defaultValue = "0") int row,
+            @RequestParam(value = "col", defaultValue = "0") int col)
+            throws NotFoundException, BadRequestException {
+
+        checkCoordinates(row, col);
+        EndlessGame game = repository.getGameById(id);
+        return new GameModelAndView(ENDLESS_TEMPLATE)
+                .addObject("gameId", id)
+                .addObject("gameView", new EndlessGameView(game, row, col));
+    }
+
+    /**
+     * Opens the given square and redirects the user back to the same window
+     * of the game.
+     *
+     * @throws NotFoundException If no game matching the id is found
+     * @throws BadRequestException if a square is too far from the origin
+     */
+    @RequestMapping(value = "/endless/{gameId}", method = RequestMethod.POST)
+    public RedirectView openSquare(
+            @PathVariable("gameId") String id,
+            @RequestParam("row") int row,
+            @RequestParam("col") int col,
+            @RequestParam("centerRow") int centerRow,
+            @RequestParam("centerCol") int centerCol) throws NotFoundException, BadRequestException {
+
+        checkCoordinates(row, col);
+        checkCoordinates(centerRow, centerCol);
+        EndlessGame game = repository.getGameById(id);
+        game.openSquare(row, col);
+        return new RedirectView("/endless/" + id + "?row=" + centerRow + "&col=" + centerCol);
+    }
+
+    private static void checkCoordinates(int row, int col) throws BadRequestException {
+        if (Math.abs((long) row) > MAX_COORDINATE || Math.abs((long) col) > MAX_COORDINATE) {
+            throw new BadRequestException("Squares must be within " + MAX_COORDINATE
+                    + " rows and columns of the origin");
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.ModelAndView;
 
 import com.havulinna.minesweeper.controller.response.GameModelAndView;
+import com.havulinna.minesweeper.exception.BadRequestException;
 import com.havulinna.minesweeper.exception.NotFoundException;
 
 @Controller
@@ -28,6 +29,14 @@ public class ExceptionHandlingController implements ErrorController {
         return new GameModelAndView("error404");
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(BadRequestException.class)
+    public ModelAndView handleBadRequestException(BadRequestException exception) {
+        return new GameModelAndView(ERROR_TEMPLATE)
+                .addObject("errorCode", Integer.valueOf(HttpStatus.BAD_REQUEST.value()))
+                .addObject("errorMessage", exception.getMessage());
+    }
+
     @RequestMapping(ERROR_PATH)
     public ModelAndView handleGenericErrors(HttpServletResponse response) {
         Integer statusCode = Integer.valueOf(response.getStatus());
@@ -0,0 +1,253 @@
+package com.havulinna.minesweeper.controller;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.havulinna.minesweeper.controller.request.MoveRequest;
+import com.havulinna.minesweeper.controller.response.BatchResponse;
+import com.havulinna.minesweeper.controller.response.ErrorResponse;
+import com.havulinna.minesweeper.controller.response.GameResponse;
+import com.havulinna.minesweeper.controller.response.MoveResponse;
+import com.havulinna.minesweeper.exception.BadRequestException;
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.Difficulty;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
+import com.havulinna.minesweeper.model.Move;
+import com.havulinna.minesweeper.model.SquareChanges;
+import com.havulinna.minesweeper.service.GameFactory;
+import com.havulinna.minesweeper.service.GameProperties;
+import com.havulinna.minesweeper.service.GameRepository;
+
+/**
+ * A JSON API for playing the games of {@link GameController}. A game is read
+ * once as a whole with {@link GameResponse}, after which each move answers
+ * with only the squares it changed, so a move takes a single small request
+ * however large the board is.
+ */
+@RestController
+@RequestMapping("/api/games")
+public class GameApiController {
+
+    private final GameRepository repository;
+    private final GameFactory factory;
+    private final GameProperties properties;
+
+    @Autowired
+    public GameApiController(GameRepository repository, GameFactory factory, GameProperties properties) {
+        this.repository = repository;
+        this.factory = factory;
+        this.properties = properties;
+    }
+
+    /**
+     * Creates and stores a new game of the given difficulty.
+     *
+     * @param seed the seed for placing the mines, or null for a random seed
+     * @param safe whether to place the mines only after the first move, away
+     *            from the opened square
+     * @return the created game
+     */
+    @ResponseStatus(HttpStatus.CREATED)
+    @RequestMapping(method = RequestMethod.POST, params = "difficulty")
+    public GameResponse createGame(
+            @RequestParam("difficulty") Difficulty difficulty,
+            @RequestParam(value = "seed", required = false) Long seed,
+            @RequestParam(value = "safe", defaultValue = "false") boolean safe) {
+
+        return store(factory.newGame(difficulty, seed, safe));
+    }
+
+    /**
+     * Creates and stores a new game with a custom size.
+     *
+     * @return the created game
+     * @throws BadRequestException if a game of the given size is not allowed
+     */
+    @ResponseStatus(HttpStatus.CREATED)
+    @RequestMapping(method = RequestMethod.POST, params = { "rows", "cols", "mines" })
+    public GameResponse createCustomGame(
+            @RequestParam("rows") int rows,
+            @RequestParam("cols") int cols,
+            @RequestParam("mines") int mines,
+            @RequestParam(value = "seed", required = false) Long seed,
+            @RequestParam(value = "safe", defaultValue = "false") boolean safe) throws BadRequestException {
+
+        return store(factory.newGame(rows, cols, mines, seed, safe));
+    }
+
+    private GameResponse store(Game game) {
+        String id = repository.store(game);
+        synchronized (game) {
+            return new GameResponse(id, game);
+        }
+    }
+
+    /**
+     * @return the whole state of the game matching the given id
+     * @throws NotFoundException if the given ID matches no game
+     */
+    @RequestMapping(value = "/{gameId}", method = RequestMethod.GET)
+    public GameResponse getGame(@PathVariable("gameId") String id) throws NotFoundException {
+        Game game = repository.getGameById(id);
+        synchronized (game) {
+            return new GameResponse(id, game);
+        }
+    }
+
+    /**
+     * Opens the given square, along with its neighbors if it has no mines
+     * next to it.
+     *
+     * @return the squares opened by the move
+     * @throws NotFoundException if the given ID matches no game
+     * @throws BadRequestException if the square is not on the board
+     */
+    @RequestMapping(value = "/{gameId}/open", method = RequestMethod.POST)
+    public MoveResponse openSquare(
+            @PathVariable("gameId") String id,
+            @RequestParam("row") int row,
+            @RequestParam("col") int col) throws NotFoundException, BadRequestException {
+
+        return applyMove(id, Move.open(row, col));
+    }
+
+    /**
+     * Flags the given square, or removes its flag.
+     *
+     * @return the flagged or unflagged square
+     * @throws NotFoundException if the given ID matches no game
+     * @throws BadRequestException if the square is not on the board
+     */
+    @RequestMapping(value = "/{gameId}/flag", method = RequestMethod.POST)
+    public MoveResponse toggleFlag(
+            @PathVariable("gameId") String id,
+            @RequestParam("row") int row,
+            @RequestParam("col") int col) throws NotFoundException, BadRequestException {
+
+        return applyMove(id, Move.flag(row, col));
+    }
+
+    /**
+     * Chords the given open square, opening its neighbors that are not
+     * flagged if as many of them are flagged as there are mines next to it.
+     *
+     * @return the squares opened by the move
+     * @throws NotFoundException if the given ID matches no game
+     * @throws BadRequestException if the square is not on the board
+     */
+    @RequestMapping(value = "/{gameId}/chord", method = RequestMethod.POST)
+    public MoveResponse chord(
+            @PathVariable("gameId") String id,
+            @RequestParam("row") int row,
+            @RequestParam("col") int col) throws NotFoundException, BadRequestException {
+
+        return applyMove(id, Move.chord(row, col));
+    }
+
+    /**
+     * Applies the given moves in order while holding the lock of the game,
+     * until all of them are applied or the game is over. Moves that are not
+     * allowed change nothing, as with single moves.
+     *
+     * @return the squares changed by the applied moves, each listed once
+     * @throws NotFoundException if the given ID matches no game
+     * @throws BadRequestException if there are too many moves, or a move has
+     *             no operation or a square that is not on the board
+     */
+    @RequestMapping(value = "/{gameId}/moves", method = RequestMethod.POST)
+    public BatchResponse applyMoves(
+            @PathVariable("gameId") String id,
+            @RequestBody List<MoveRequest> moves) throws NotFoundException, BadRequestException {
+
+        if (moves.size() > properties.getMaxBatchMoves()) {
+            throw new BadRequestException("A batch can have at most " + properties.getMaxBatchMoves() + " moves");
+        }
+        Game game = repository.getGameById(id);
+        for (MoveRequest move : moves) {
+            if (move == null || move.getOp() == null) {
+                throw new BadRequestException("Each move must have an operation");
+            }
+            checkCoordinates(game.getMinefield(), move.getRow(), move.getCol());
+        }
+
+        synchronized (game) {
+            int[] changed = new int[16];
+            int count = 0;
+            int applied = 0;
+            for (MoveRequest move : moves) {
+                if (game.isOver()) {
+                    break;
+                }
+                SquareChanges changes = game.apply(move.toMove());
+                applied++;
+                if (count + changes.size() > changed.length) {
+                    changed = Arrays.copyOf(changed, Math.max(2 * changed.length, count + changes.size()));
+                }
+                for (int i = 0; i < changes.size(); i++) {
+                    changed[count++] = changes.get(i);
+                }
+            }
+            return new BatchResponse(game, changed, distinct(changed, count), applied);
+        }
+    }
+
+    /**
+     * Sorts the first given number of indexes and moves each distinct index
+     * to the front.
+     *
+     * @return the number of distinct indexes
+     */
+    private static int distinct(int[] indexes, int count) {
+        Arrays.sort(indexes, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || indexes[i] != indexes[distinct - 1]) {
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Applies the move and reads its changes under the lock of the game, so
+     * the response matches the state right after the move.
+     */
+    private MoveResponse applyMove(String id, Move move) throws NotFoundException, BadRequestException {
+        Game game = repository.getGameById(id);
+        checkCoordinates(game.getMinefield(), move.getRow(), move.getCol());
+        synchronized (game) {
+            return new MoveResponse(game, game.apply(move));
+        }
+    }
+
+    private static void checkCoordinates(Minefield minefield, int row, int col) throws BadRequestException {
+        if (row < 0 || col < 0 || row >= minefield.getHeight() || col >= minefield.getWidth()) {
+            throw new BadRequestException("Square " + row + "," + col + " is not on the board of "
+                    + minefield.getHeight() + "x" + minefield.getWidth() + " squares");
+        }
+    }
+
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(NotFoundException.class)
+    public ErrorResponse handleNotFoundException(NotFoundException exception) {
+        return new ErrorResponse(HttpStatus.NOT_FOUND.value(), exception.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(BadRequestException.class)
+    public ErrorResponse handleBadRequestException(BadRequestException exception) {
+        return new ErrorResponse(HttpStatus.BAD_REQUEST.value(), exception.getMessage());
+    }
+}
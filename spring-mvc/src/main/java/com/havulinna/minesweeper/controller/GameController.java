@@ -6,14 +6,20 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.view.RedirectView;
 
 import com.havulinna.minesweeper.controller.response.GameModelAndView;
+import com.havulinna.minesweeper.exception.BadRequestException;
 import com.havulinna.minesweeper.exception.NotFoundException;
 import com.havulinna.minesweeper.model.Difficulty;
 import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
+import com.havulinna.minesweeper.model.Move;
+import com.havulinna.minesweeper.service.GameFactory;
 import com.havulinna.minesweeper.service.GameRepository;
+import com.havulinna.minesweeper.view.GameView;
 
 @Controller
 public class GameController {
@@ -21,41 +27,86 @@ public class GameController {
     private static final String GAME_TEMPLATE = "game";
 
     private final GameRepository repository;
+    private final GameFactory factory;
 
     @Autowired
-    public GameController(GameRepository repository) {
+    public GameController(GameRepository repository, GameFactory factory) {
         this.repository = repository;
+        this.factory = factory;
     }
 
     /**
      * Creates a new {@link Game} with the given difficulty, stores the game,
-     * and redirects the user to that game.
+     * and redirects the user to that game. The mines are placed with the
+     * given seed, so the same seed can be used to play the same game again.
      * 
      * @param difficulty
+     * @param seed the seed for placing the mines, or null for a random seed
+     * @param safe whether to place the mines only after the first move, away
+     *            from the opened square
      * @return redirect to the newly created game
      */
-    @RequestMapping(value = "/new", method = RequestMethod.POST)
+    @RequestMapping(value = "/new", method = RequestMethod.POST, params = "difficulty")
     public RedirectView startNewGame(
-            @RequestParam("difficulty") Difficulty difficulty) {
+            @RequestParam("difficulty") Difficulty difficulty,
+            @RequestParam(value = "seed", required = false) Long seed,
+            @RequestParam(value = "safe", defaultValue = "false") boolean safe) {
 
-        Game newGame = new Game(difficulty);
+        Game newGame = factory.newGame(difficulty, seed, safe);
+        String gameId = repository.store(newGame);
+        return new RedirectView("/game/" + gameId);
+    }
+
+    /**
+     * Creates a new {@link Game} with a custom size, stores the game, and
+     * redirects the user to that game.
+     * 
+     * @param seed the seed for placing the mines, or null for a random seed
+     * @param safe whether to place the mines only after the first move, away
+     *            from the opened square
+     * @return redirect to the newly created game
+     * @throws BadRequestException if a game of the given size is not allowed
+     */
+    @RequestMapping(value = "/new", method = RequestMethod.POST, params = { "rows", "cols", "mines" })
+    public RedirectView startCustomGame(
+            @RequestParam("rows") int rows,
+            @RequestParam("cols") int cols,
+            @RequestParam("mines") int mines,
+            @RequestParam(value = "seed", required = false) Long seed,
+            @RequestParam(value = "safe", defaultValue = "false") boolean safe) throws BadRequestException {
+
+        Game newGame = factory.newGame(rows, cols, mines, seed, safe);
         String gameId = repository.store(newGame);
         return new RedirectView("/game/" + gameId);
     }
 
     /**
      * Renders the game matching given id. If the game is ongoing, the user will
-     * be able to play the game on this page.
+     * be able to play the game on this page. The page is tagged with the
+     * version of the game, and if the client already has the page of the
+     * current version, it is told so instead of rendering the page again.
      * 
      * @param id The unique ID of the user's game
-     * @return view containing the requested game
+     * @param mode the move made by clicking a closed square, either opening it
+     *            or toggling its flag
+     * @return view containing the requested game, or null if the client has
+     *         it already
      * @throws NotFoundException if the given ID matches no game
      */
     @RequestMapping(value = "/game/{gameId}", method = RequestMethod.GET)
-    public ModelAndView showGame(@PathVariable("gameId") String id) throws NotFoundException {
+    public ModelAndView showGame(
+            @PathVariable("gameId") String id,
+            @RequestParam(value = "mode", defaultValue = "OPEN") Move.Type mode,
+            WebRequest request) throws NotFoundException {
+
         Game game = repository.getGameById(id);
+        if (request.checkNotModified(etagOf(game))) {
+            return null;
+        }
 
-        return new GameModelAndView(GAME_TEMPLATE, game);
+        return new GameModelAndView(GAME_TEMPLATE, game)
+                .addObject("gameId", id)
+                .addObject("mode", mode == Move.Type.FLAG ? Move.Type.FLAG : Move.Type.OPEN);
     }
 
     /**
@@ -63,17 +114,91 @@ public class GameController {
      * user back to the game view.
      * 
      * @throws NotFoundException If no game matching the id is found
+     * @throws BadRequestException If the square is not on the board of the game
      */
     @RequestMapping(value = "/game/{gameId}", method = RequestMethod.POST)
     public RedirectView openSquare(
             @PathVariable("gameId") String id,
             @RequestParam("row") int row,
-            @RequestParam("col") int col) throws NotFoundException {
+            @RequestParam("col") int col) throws NotFoundException, BadRequestException {
 
         Game game = repository.getGameById(id);
+        checkCoordinates(game.getMinefield(), row, col);
         if (!game.isOver()) {
             game.openSquare(row, col);
         }
         return new RedirectView("/game/" + id);
     }
+
+    /**
+     * Handles a move of the given type on the game if the game is still
+     * ongoing, and redirects the user back to the game view in the same mode.
+     * 
+     * @param op the move to make: opening the square, toggling its flag, or
+     *            chording it
+     * @param mode the mode the game view was in
+     * @throws NotFoundException If no game matching the id is found
+     * @throws BadRequestException If the square is not on the board of the game
+     */
+    @RequestMapping(value = "/game/{gameId}", method = RequestMethod.POST, params = "op")
+    public RedirectView makeMove(
+            @PathVariable("gameId") String id,
+            @RequestParam("row") int row,
+            @RequestParam("col") int col,
+            @RequestParam("op") Move.Type op,
+            @RequestParam(value = "mode", defaultValue = "OPEN") Move.Type mode)
+            throws NotFoundException, BadRequestException {
+
+        Game game = repository.getGameById(id);
+        checkCoordinates(game.getMinefield(), row, col);
+        return play(id, game, new Move(op, row, col), mode);
+    }
+
+    /**
+     * Handles a move made with a button of the board, whose value names both
+     * the move and the square, and redirects the user back to the game view
+     * in the same mode.
+     * 
+     * @param square the value of the button, as rendered by
+     *            {@link GameView#getBoardRows(Move.Type)}
+     * @throws NotFoundException If no game matching the id is found
+     * @throws BadRequestException If the value names no move on the game
+     */
+    @RequestMapping(value = "/game/{gameId}", method = RequestMethod.POST, params = "square")
+    public RedirectView playSquare(
+            @PathVariable("gameId") String id,
+            @RequestParam("square") String square,
+            @RequestParam(value = "mode", defaultValue = "OPEN") Move.Type mode)
+            throws NotFoundException, BadRequestException {
+
+        Game game = repository.getGameById(id);
+        Move move = GameView.moveOf(square, game.getMinefield());
+        if (move == null) {
+            throw new BadRequestException("No such move: " + square);
+        }
+        return play(id, game, move, mode);
+    }
+
+    private static RedirectView play(String id, Game game, Move move, Move.Type mode) {
+        if (!game.isOver()) {
+            game.apply(move);
+        }
+        return new RedirectView("/game/" + id + (mode == Move.Type.FLAG ? "?mode=FLAG" : ""));
+    }
+
+    private static void checkCoordinates(Minefield minefield, int row, int col) throws BadRequestException {
+        if (row < 0 || col < 0 || row >= minefield.getHeight() || col >= minefield.getWidth()) {
+            throw new BadRequestException("Square " + row + "," + col + " is not on the board of "
+                    + minefield.getHeight() + "x" + minefield.getWidth() + " squares");
+        }
+    }
+
+    /**
+     * Tags the page of the given game with the version of the game. The
+     * version is read before the page is built, so a move made meanwhile
+     * makes the tag older than the page and the next request renders it again.
+     */
+    private static String etagOf(Game game) {
+        return "\"" + Long.toHexString(game.getVersion()) + "\"";
+    }
 }
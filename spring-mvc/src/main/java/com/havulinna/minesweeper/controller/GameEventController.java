@@ -0,0 +1,120 @@
+package com.havulinna.minesweeper.controller;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.service.GameEventBroadcaster;
+import com.havulinna.minesweeper.service.GameEventBroadcaster.EventSink;
+import com.havulinna.minesweeper.service.GameEventBroadcaster.Subscription;
+import com.havulinna.minesweeper.service.GameRepository;
+
+/**
+ * Streams the moves of a game to spectators as server-sent events, see
+ * {@link GameEventBroadcaster}. The stream is kept open with an asynchronous
+ * request, so a spectator does not hold a request thread.
+ */
+@RestController
+public class GameEventController {
+
+    private static final String EVENT_STREAM = "text/event-stream";
+
+    private final GameRepository repository;
+    private final GameEventBroadcaster broadcaster;
+
+    @Autowired
+    public GameEventController(GameRepository repository, GameEventBroadcaster broadcaster) {
+        this.repository = repository;
+        this.broadcaster = broadcaster;
+    }
+
+    /**
+     * Starts streaming the game matching the given id.
+     *
+     * @throws NotFoundException if the given ID matches no game
+     */
+    @RequestMapping(value = "/api/games/{gameId}/events", method = RequestMethod.GET)
+    public void watchGame(
+            @PathVariable("gameId") String id,
+            HttpServletRequest request,
+            HttpServletResponse response) throws NotFoundException, IOException {
+
+        Game game = repository.getGameById(id);
+
+        response.setContentType(EVENT_STREAM);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.flushBuffer();
+
+        AsyncContext context = request.startAsync(request, response);
+        context.setTimeout(0);
+        Subscription subscription = broadcaster.subscribe(id, game, new AsyncContextSink(context));
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                subscription.cancel();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                subscription.cancel();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                subscription.cancel();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    /**
+     * Writes the events to the response of an asynchronous request.
+     */
+    private static final class AsyncContextSink implements EventSink {
+        private final AsyncContext context;
+
+        private AsyncContextSink(AsyncContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void write(byte[] events) throws IOException {
+            outputStream().write(events);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream().flush();
+        }
+
+        @Override
+        public void close() {
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                // The request was already completed, for example by the container
+            }
+        }
+
+        private ServletOutputStream outputStream() throws IOException {
+            return context.getResponse().getOutputStream();
+        }
+    }
+}
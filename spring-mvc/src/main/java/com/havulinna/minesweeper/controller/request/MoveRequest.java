@@ -0,0 +1,51 @@
+package com.havulinna.minesweeper.controller.request;
+
+import com.havulinna.minesweeper.model.Move;
+
+/**
+ * A single move in a batch of moves, for example
+ * <code>{"op": "OPEN", "row": 3, "col": 5}</code>.
+ */
+public class MoveRequest {
+
+    private Move.Type op;
+    private int row;
+    private int col;
+
+    public MoveRequest() {
+    }
+
+    public MoveRequest(Move.Type op, int row, int col) {
+        this.op = op;
+        this.row = row;
+        this.col = col;
+    }
+
+    public Move.Type getOp() {
+        return op;
+    }
+
+    public void setOp(Move.Type op) {
+        this.op = op;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public void setCol(int col) {
+        this.col = col;
+    }
+
+    public Move toMove() {
+        return new Move(op, row, col);
+    }
+}
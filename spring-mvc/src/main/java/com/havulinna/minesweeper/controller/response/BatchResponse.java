@@ -0,0 +1,22 @@
+package com.havulinna.minesweeper.controller.response;
+
+import com.havulinna.minesweeper.model.Game;
+
+/**
+ * The result of a batch of moves: the squares changed by any of the applied
+ * moves, each listed once with its state after the last move, along with the
+ * number of moves that were applied before the batch ended.
+ */
+public class BatchResponse extends MoveResponse {
+
+    private final int applied;
+
+    public BatchResponse(Game game, int[] squares, int count, int applied) {
+        super(game, squares, count);
+        this.applied = applied;
+    }
+
+    public int getApplied() {
+        return applied;
+    }
+}
@@ -0,0 +1,57 @@
+package com.havulinna.minesweeper.controller.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.havulinna.minesweeper.model.Minefield;
+
+/**
+ * The state of a single square as seen by the player. Whether a square has a
+ * mine and how many mines are next to it are only included once the square is
+ * open.
+ */
+@JsonInclude(Include.NON_NULL)
+public class CellResponse {
+
+    private final int row;
+    private final int col;
+    private final boolean open;
+    private final boolean flagged;
+    private final Boolean mine;
+    private final Integer neighborMines;
+
+    /**
+     * Reads the state of the square with the given minefield index.
+     */
+    public CellResponse(Minefield minefield, int index) {
+        this.row = index / minefield.getWidth();
+        this.col = index % minefield.getWidth();
+        this.open = minefield.isOpen(index);
+        this.flagged = minefield.isFlagged(index);
+        this.mine = open ? Boolean.valueOf(minefield.isMine(index)) : null;
+        this.neighborMines = open ? Integer.valueOf(minefield.getNeighborMineCount(index)) : null;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public boolean isFlagged() {
+        return flagged;
+    }
+
+    public Boolean getMine() {
+        return mine;
+    }
+
+    public Integer getNeighborMines() {
+        return neighborMines;
+    }
+}
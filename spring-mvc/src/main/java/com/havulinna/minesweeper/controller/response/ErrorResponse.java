@@ -0,0 +1,23 @@
+package com.havulinna.minesweeper.controller.response;
+
+/**
+ * The body of an error response of the JSON API.
+ */
+public class ErrorResponse {
+
+    private final int status;
+    private final String message;
+
+    public ErrorResponse(int status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
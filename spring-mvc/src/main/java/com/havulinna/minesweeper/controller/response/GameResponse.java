@@ -0,0 +1,110 @@
+package com.havulinna.minesweeper.controller.response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
+import com.havulinna.minesweeper.view.GameView;
+
+/**
+ * The whole state of a game as seen by the player. The board is a list of
+ * rows with one character for each square:
+ *
+ * <ul>
+ * <li>{@code .} a closed square</li>
+ * <li>{@code F} a flagged square</li>
+ * <li>{@code 0} to {@code 8} an open square and the number of mines next to it</li>
+ * <li>{@code *} an open mine, or any mine once the game is lost</li>
+ * </ul>
+ */
+public class GameResponse {
+
+    private static final char CLOSED = '.';
+    private static final char FLAGGED = 'F';
+    private static final char MINE = '*';
+
+    private final String id;
+    private final int rows;
+    private final int cols;
+    private final int mines;
+    private final int moves;
+    private final GameView.State state;
+    private final Long seed;
+    private final List<String> board;
+
+    /**
+     * Reads the state of the given game. The caller should hold the lock of
+     * the game, so that no move is applied while the board is read.
+     */
+    public GameResponse(String id, Game game) {
+        Minefield minefield = game.getMinefield();
+        OptionalLong seed = game.getSeed();
+        this.id = id;
+        this.rows = minefield.getHeight();
+        this.cols = minefield.getWidth();
+        this.mines = game.getMineCount();
+        this.moves = game.getMoves();
+        this.state = GameView.stateOf(game);
+        this.seed = seed.isPresent() ? Long.valueOf(seed.getAsLong()) : null;
+        this.board = readBoard(minefield, state == GameView.State.LOST);
+    }
+
+    private static List<String> readBoard(Minefield minefield, boolean showMines) {
+        List<String> board = new ArrayList<String>(minefield.getHeight());
+        char[] symbols = new char[minefield.getWidth()];
+        for (int row = 0, index = 0; row < minefield.getHeight(); row++) {
+            for (int col = 0; col < symbols.length; col++, index++) {
+                symbols[col] = symbolOf(minefield, index, showMines);
+            }
+            board.add(new String(symbols));
+        }
+        return board;
+    }
+
+    private static char symbolOf(Minefield minefield, int index, boolean showMines) {
+        boolean open = minefield.isOpen(index);
+        if (minefield.isMine(index) && (open || showMines)) {
+            return MINE;
+        } else if (open) {
+            return (char) ('0' + minefield.getNeighborMineCount(index));
+        } else if (minefield.isFlagged(index)) {
+            return FLAGGED;
+        } else {
+            return CLOSED;
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getMines() {
+        return mines;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public GameView.State getState() {
+        return state;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public List<String> getBoard() {
+        return board;
+    }
+}
@@ -0,0 +1,59 @@
+package com.havulinna.minesweeper.controller.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.SquareChanges;
+import com.havulinna.minesweeper.view.GameView;
+
+/**
+ * The result of a move: the squares whose state the move changed, the move
+ * counter and the state of the game after the move. A client that already
+ * shows the game can apply the changed squares to its copy of the board
+ * instead of reading the whole board again.
+ */
+public class MoveResponse {
+
+    private final int moves;
+    private final GameView.State state;
+    private final List<CellResponse> cells;
+
+    /**
+     * Reads the given changes from the game. The caller should hold the lock
+     * of the game, so that no other move is applied in between.
+     */
+    public MoveResponse(Game game, SquareChanges changes) {
+        this.moves = game.getMoves();
+        this.state = GameView.stateOf(game);
+        this.cells = new ArrayList<CellResponse>(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            cells.add(new CellResponse(game.getMinefield(), changes.get(i)));
+        }
+    }
+
+    /**
+     * Reads the squares with the given minefield indexes from the game, for
+     * example the squares changed by several moves.
+     */
+    public MoveResponse(Game game, int[] squares, int count) {
+        this.moves = game.getMoves();
+        this.state = GameView.stateOf(game);
+        this.cells = new ArrayList<CellResponse>(count);
+        for (int i = 0; i < count; i++) {
+            cells.add(new CellResponse(game.getMinefield(), squares[i]));
+        }
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public GameView.State getState() {
+        return state;
+    }
+
+    public List<CellResponse> getCells() {
+        return cells;
+    }
+}
@@ -0,0 +1,10 @@
+package com.havulinna.minesweeper.exception;
+
+public class BadRequestException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.havulinna.minesweeper.model;
+
+/**
+ * A square area of an {@link EndlessMinefield}, {@value #SIZE} squares per
+ * side. The mines of a chunk are derived from the seed of the minefield and
+ * the coordinates of each square, so an unmodified chunk can be dropped and
+ * derived again with the same mines at any time.
+ *
+ * Like {@link Minefield}, a chunk keeps its state in packed bitsets and the
+ * neighbor mine counts of its squares as four bit values. The counts of the
+ * squares on the edges include the mines of the neighboring chunks, which are
+ * derived as needed without materializing those chunks.
+ */
+final class Chunk {
+
+    static final int SHIFT = 5;
+    static final int SIZE = 1 << SHIFT;
+    static final int MASK = SIZE - 1;
+
+    private static final int SQUARES = SIZE * SIZE;
+    private static final int WORDS = SQUARES >>> 6;
+
+    private final long[] mines = new long[WORDS];
+    private final long[] open = new long[WORDS];
+    private final long[] flagged = new long[WORDS];
+    private final long[] neighborMines = new long[SQUARES >>> 4];
+
+    /** The number of open and flagged squares, a chunk without them is unmodified */
+    private int modifications = 0;
+
+    /**
+     * Derives the chunk with the given chunk coordinates.
+     *
+     * @param threshold a square has a mine if its hash is below this value
+     */
+    Chunk(long seed, int threshold, int chunkRow, int chunkCol) {
+        int firstRow = chunkRow << SHIFT;
+        int firstCol = chunkCol << SHIFT;
+
+        // Mines of the surrounding one square wide border count towards the edges
+        for (int r = -1; r <= SIZE; r++) {
+            for (int c = -1; c <= SIZE; c++) {
+                if (!hasMine(seed, threshold, firstRow + r, firstCol + c)) {
+                    continue;
+                }
+                if (r >= 0 && r < SIZE && c >= 0 && c < SIZE) {
+                    int index = (r << SHIFT) + c;
+                    mines[index >>> 6] |= 1L << index;
+                }
+                for (int nr = Math.max(r - 1, 0); nr <= Math.min(r + 1, SIZE - 1); nr++) {
+                    for (int nc = Math.max(c - 1, 0); nc <= Math.min(c + 1, SIZE - 1); nc++) {
+                        if (nr != r || nc != c) {
+                            int neighbor = (nr << SHIFT) + nc;
+                            neighborMines[neighbor >>> 4] += 1L << ((neighbor & 15) << 2);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Decides whether the square in the given coordinates has a mine. The
+     * squares around the origin never have mines, so a game can always be
+     * started from there.
+     */
+    static boolean hasMine(long seed, int threshold, int row, int col) {
+        if (Math.abs(row) <= 1 && Math.abs(col) <= 1) {
+            return false;
+        }
+        // SplitMix64 finalizer over the seed and the coordinates
+        long hash = seed + row * 0x9E3779B97F4A7C15L + col * 0xC2B2AE3D27D4EB4FL;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        return (int) (hash >>> 40) < threshold;
+    }
+
+    /**
+     * @return the index of the square in the given coordinates within its chunk
+     */
+    static int indexOf(int row, int col) {
+        return ((row & MASK) << SHIFT) + (col & MASK);
+    }
+
+    boolean isMine(int index) {
+        return (mines[index >>> 6] & (1L << index)) != 0;
+    }
+
+    boolean isOpen(int index) {
+        return (open[index >>> 6] & (1L << index)) != 0;
+    }
+
+    boolean isFlagged(int index) {
+        return (flagged[index >>> 6] & (1L << index)) != 0;
+    }
+
+    int getNeighborMineCount(int index) {
+        return (int) (neighborMines[index >>> 4] >>> ((index & 15) << 2)) & 0xF;
+    }
+
+    /**
+     * @return true if the square was closed before this call
+     */
+    boolean setOpen(int index) {
+        if (isOpen(index)) {
+            return false;
+        }
+        open[index >>> 6] |= 1L << index;
+        modifications++;
+        return true;
+    }
+
+    void toggleFlag(int index) {
+        flagged[index >>> 6] ^= 1L << index;
+        modifications += isFlagged(index) ? 1 : -1;
+    }
+
+    /**
+     * @return true if any square of this chunk is open or flagged
+     */
+    boolean isModified() {
+        return modifications > 0;
+    }
+
+    /**
+     * @return the estimated heap memory used by a chunk in bytes
+     */
+    static long estimateMemoryUsage() {
+        return 24 + 3 * (16 + 8 * WORDS) + 16 + 8 * (SQUARES >>> 4);
+    }
+}
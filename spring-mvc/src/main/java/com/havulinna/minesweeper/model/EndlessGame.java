@@ -0,0 +1,128 @@
+package com.havulinna.minesweeper.model;
+
+import java.util.Arrays;
+
+import org.springframework.util.Assert;
+
+/**
+ * A game of minesweeper on an {@link EndlessMinefield}. The game cannot be won:
+ * it goes on until a mine is opened, and the score is the number of opened
+ * squares. The squares around the origin never have mines, so opening the
+ * origin is always a safe first move.
+ *
+ * Like {@link Game}, all public methods are synchronized on the game object.
+ */
+public class EndlessGame {
+
+    /**
+     * The lowest allowed mine density. With fewer mines the areas without
+     * mines next to them could grow without limit, and so could a flood fill.
+     */
+    public static final double MIN_DENSITY = 0.15;
+
+    private final EndlessMinefield minefield;
+    private int moves = 0;
+    private boolean lost = false;
+
+    public EndlessGame(long seed, double density) {
+        this(new EndlessMinefield(seed, density));
+        Assert.isTrue(density >= MIN_DENSITY);
+    }
+
+    EndlessGame(EndlessMinefield minefield) {
+        this.minefield = minefield;
+    }
+
+    public synchronized boolean isLost() {
+        return lost;
+    }
+
+    public synchronized boolean isOver() {
+        return lost;
+    }
+
+    public synchronized int getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return the number of opened squares, which is the score of the game
+     */
+    public synchronized long getScore() {
+        return minefield.getOpenCount();
+    }
+
+    public synchronized void toggleFlag(int row, int col) {
+        Assert.isTrue(!lost && !minefield.isOpen(row, col));
+        minefield.toggleFlag(row, col);
+    }
+
+    /**
+     * Opens the given square, and floods outwards from it through the squares
+     * without mines next to them as in {@link Game#openSquare(int, int)}.
+     *
+     * @return the number of squares opened by this move
+     */
+    public synchronized int openSquare(int row, int col) {
+        if (lost || minefield.isFlagged(row, col) || minefield.isOpen(row, col)) {
+            return 0;
+        }
+        moves++;
+        minefield.setOpen(row, col);
+        if (minefield.isMine(row, col)) {
+            lost = true;
+            return 1;
+        }
+        return 1 + openArea(row, col);
+    }
+
+    /**
+     * Breadth first search from the given open square. Coordinates are queued
+     * as pairs in a growing int array, as the squares have no fixed indexes.
+     */
+    private int openArea(int startRow, int startCol) {
+        int[] queue = new int[32];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = startRow;
+        queue[tail++] = startCol;
+
+        int opened = 0;
+        while (head < tail) {
+            int row = queue[head++];
+            int col = queue[head++];
+            if (minefield.getNeighborMineCount(row, col) > 0) {
+                continue;
+            }
+            for (int r = row - 1; r <= row + 1; r++) {
+                for (int c = col - 1; c <= col + 1; c++) {
+                    if (!minefield.isFlagged(r, c) && minefield.setOpen(r, c)) {
+                        opened++;
+                        if (tail + 2 > queue.length) {
+                            // Drop the consumed head of the queue, and grow it if still over half full
+                            int length = tail - head;
+                            int capacity = Math.max(queue.length, 2 * (length + 2));
+                            queue = Arrays.copyOfRange(queue, head, head + capacity);
+                            head = 0;
+                            tail = length;
+                        }
+                        queue[tail++] = r;
+                        queue[tail++] = c;
+                    }
+                }
+            }
+        }
+        return opened;
+    }
+
+    public EndlessMinefield getMinefield() {
+        return minefield;
+    }
+
+    /**
+     * @return the estimated heap memory used by this game in bytes
+     */
+    public synchronized long estimateMemoryUsage() {
+        return 32 + minefield.estimateMemoryUsage();
+    }
+}
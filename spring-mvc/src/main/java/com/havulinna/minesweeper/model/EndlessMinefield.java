@@ -0,0 +1,178 @@
+package com.havulinna.minesweeper.model;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * A minefield without a fixed size, for the endless mode. The field is split
+ * into {@link Chunk chunks} whose mines are derived from the seed of the game
+ * and the coordinates of each square, so a chunk is only materialized when a
+ * move or a render touches it.
+ *
+ * Chunks with open or flagged squares are kept for as long as they have any.
+ * Unmodified chunks are only cached: when there are more of them than
+ * the given limit, the least recently used one is dropped and derived again
+ * if it is needed later. The memory used by the minefield is therefore
+ * proportional to the explored area.
+ *
+ * Coordinates may be negative. Both must stay within {@value #MAX_COORDINATE}
+ * squares from the origin.
+ */
+public class EndlessMinefield {
+
+    public static final int MAX_COORDINATE = 1 << 30;
+
+    private static final int DEFAULT_CACHED_CHUNKS = 256;
+
+    private final long seed;
+    private final int threshold;
+    private final Map<Long, Chunk> modifiedChunks = new HashMap<Long, Chunk>();
+    private final Map<Long, Chunk> cachedChunks;
+
+    private long lastKey;
+    private Chunk lastChunk;
+
+    private long openCount = 0;
+    private long flagCount = 0;
+
+    public EndlessMinefield(long seed, double density) {
+        this(seed, density, DEFAULT_CACHED_CHUNKS);
+    }
+
+    /**
+     * @param seed the seed the mines are derived from
+     * @param density the probability of each square having a mine
+     * @param maxCachedChunks the number of unmodified chunks kept in memory
+     */
+    public EndlessMinefield(long seed, double density, int maxCachedChunks) {
+        Assert.isTrue(density >= 0 && density < 1);
+        this.seed = seed;
+        this.threshold = (int) Math.round(density * (1 << 24));
+        this.cachedChunks = new LinkedHashMap<Long, Chunk>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                return size() > maxCachedChunks;
+            }
+        };
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean isMine(int row, int col) {
+        return chunkOf(row, col).isMine(Chunk.indexOf(row, col));
+    }
+
+    public boolean isOpen(int row, int col) {
+        return chunkOf(row, col).isOpen(Chunk.indexOf(row, col));
+    }
+
+    public boolean isFlagged(int row, int col) {
+        return chunkOf(row, col).isFlagged(Chunk.indexOf(row, col));
+    }
+
+    public int getNeighborMineCount(int row, int col) {
+        return chunkOf(row, col).getNeighborMineCount(Chunk.indexOf(row, col));
+    }
+
+    /**
+     * Opens the given square.
+     *
+     * @return true if the square was closed before this call
+     */
+    boolean setOpen(int row, int col) {
+        Chunk chunk = modifiableChunkOf(row, col);
+        if (chunk.setOpen(Chunk.indexOf(row, col))) {
+            openCount++;
+            return true;
+        }
+        return false;
+    }
+
+    void toggleFlag(int row, int col) {
+        Chunk chunk = modifiableChunkOf(row, col);
+        int index = Chunk.indexOf(row, col);
+        chunk.toggleFlag(index);
+        flagCount += chunk.isFlagged(index) ? 1 : -1;
+        if (!chunk.isModified()) {
+            // The last flag of a chunk without open squares was removed, so it can be dropped again
+            Long key = Long.valueOf(lastKey);
+            modifiedChunks.remove(key);
+            cachedChunks.put(key, chunk);
+        }
+    }
+
+    public long getOpenCount() {
+        return openCount;
+    }
+
+    public long getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * @return the number of chunks with open or flagged squares
+     */
+    public int getModifiedChunkCount() {
+        return modifiedChunks.size();
+    }
+
+    /**
+     * @return the number of chunks currently in memory
+     */
+    public int getChunkCount() {
+        return modifiedChunks.size() + cachedChunks.size();
+    }
+
+    /**
+     * @return the estimated heap memory used by this minefield in bytes
+     */
+    public long estimateMemoryUsage() {
+        return 128 + getChunkCount() * (Chunk.estimateMemoryUsage() + 64);
+    }
+
+    /**
+     * Returns the chunk of the given square, deriving it if it is not in
+     * memory. Subsequent calls for the same chunk skip the map lookup.
+     */
+    private Chunk chunkOf(int row, int col) {
+        Assert.isTrue(Math.abs(row) < MAX_COORDINATE && Math.abs(col) < MAX_COORDINATE);
+        long key = ((long) (row >> Chunk.SHIFT) << 32) | ((col >> Chunk.SHIFT) & 0xFFFFFFFFL);
+        if (lastChunk != null && key == lastKey) {
+            return lastChunk;
+        }
+
+        Long boxedKey = Long.valueOf(key);
+        Chunk chunk = modifiedChunks.get(boxedKey);
+        if (chunk == null) {
+            chunk = cachedChunks.get(boxedKey);
+        }
+        if (chunk == null) {
+            chunk = new Chunk(seed, threshold, row >> Chunk.SHIFT, col >> Chunk.SHIFT);
+            cachedChunks.put(boxedKey, chunk);
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Returns the chunk of the given square and makes sure it is kept in
+     * memory from now on.
+     */
+    private Chunk modifiableChunkOf(int row, int col) {
+        Chunk chunk = chunkOf(row, col);
+        if (!chunk.isModified()) {
+            Long key = Long.valueOf(lastKey);
+            cachedChunks.remove(key);
+            modifiedChunks.put(key, chunk);
+        }
+        return chunk;
+    }
+}
@@ -1,59 +1,273 @@
 package com.havulinna.minesweeper.model;
 
-import org.springframework.util.Assert;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
-import com.havulinna.collections.SmartList;
+import org.springframework.util.Assert;
 
+/**
+ * A single game of minesweeper. All public methods are synchronized on the game
+ * object, so concurrent moves on the same game are applied one at a time while
+ * moves on different games never contend with each other. Callers that need
+ * several calls to see a consistent state can synchronize on the game as well.
+ */
 public class Game {
 
+    private static final GameListener[] NO_LISTENERS = new GameListener[0];
+
     private final Minefield minefield;
+    private final boolean seeded;
+    private final long seed;
     private int moves = 0;
+    private long version = ThreadLocalRandom.current().nextLong() >>> 1;
+
+    /** The number of mines to place on the first move, or -1 once they are placed */
+    private int deferredMines = -1;
 
+    /** The square kept free of mines along with its neighbors, or -1 */
+    private int safeSquare = -1;
+
+    private GameListener[] listeners = NO_LISTENERS;
+
+    /**
+     * Creates a game with mines on random squares, chosen with a random seed.
+     */
     public Game(int rows, int cols, int mineCount) {
-        this.minefield = new Minefield(rows, cols);
+        this(rows, cols, mineCount, ThreadLocalRandom.current().nextLong());
+    }
 
-        setMinesRandomly(mineCount);
+    /**
+     * Creates a game with mines on squares chosen with the given seed. Games
+     * created with the same size, mine count and seed have the same mines.
+     */
+    public Game(int rows, int cols, int mineCount, long seed) {
+        this(rows, cols, mineCount, seed, false);
+    }
+
+    /**
+     * Creates a game with mines on squares chosen with the given seed. If the
+     * first move is to be safe, no mines are placed until the first square is
+     * opened, and then that square and its neighbors are left out of the
+     * squares the mines are placed on. If there are not enough other squares,
+     * every other square gets a mine.
+     */
+    public Game(int rows, int cols, int mineCount, long seed, boolean safeFirstMove) {
+        this(safeFirstMove ? new Minefield(rows, cols) : Minefield.withRandomMines(rows, cols, mineCount, seed),
+                0, seed);
+        if (safeFirstMove) {
+            this.deferredMines = Math.max(mineCount, 0);
+        }
     }
 
     public Game(Difficulty difficulty) {
         this(difficulty.height, difficulty.width, difficulty.mineCount);
     }
 
+    public Game(Difficulty difficulty, long seed) {
+        this(difficulty.height, difficulty.width, difficulty.mineCount, seed);
+    }
+
+    public Game(Difficulty difficulty, long seed, boolean safeFirstMove) {
+        this(difficulty.height, difficulty.width, difficulty.mineCount, seed, safeFirstMove);
+    }
+
+    /**
+     * Restores a game from an existing minefield and move count, for example
+     * when reading a stored game. The restored game has no seed.
+     */
+    public Game(Minefield minefield, int moves) {
+        Assert.isTrue(moves >= 0);
+        this.minefield = minefield;
+        this.moves = moves;
+        this.seeded = false;
+        this.seed = 0;
+    }
+
+    /**
+     * Restores a game whose mines were placed with the given seed, as in
+     * {@link Minefield#withRandomMines(int, int, int, long)}.
+     */
+    public Game(Minefield minefield, int moves, long seed) {
+        this(minefield, moves, seed, -1);
+    }
+
     /**
-     * Places the given amount of mines to random squares.
-     * @param mineCount The maximum amount of mines to place
+     * Restores a game whose mines were placed with the given seed around the
+     * given safe square, as in
+     * {@link Minefield#withRandomMines(int, int, int, long, int)}.
      */
-    private void setMinesRandomly(int mineCount) {
-        new SmartList<Square>(minefield.getSquares())
-            .shuffle()
-            .stream()
-            .limit(mineCount)
-            .forEach(x -> x.setMine());
+    public Game(Minefield minefield, int moves, long seed, int safeSquare) {
+        Assert.isTrue(moves >= 0);
+        this.minefield = minefield;
+        this.moves = moves;
+        this.seeded = true;
+        this.seed = seed;
+        this.safeSquare = safeSquare;
     }
 
-    public boolean isWon() {
+    /**
+     * @return the seed the mines of this game were placed with, or nothing if
+     *         the game was restored without its seed
+     */
+    public OptionalLong getSeed() {
+        return seeded ? OptionalLong.of(seed) : OptionalLong.empty();
+    }
+
+    /**
+     * @return true if the mines will only be placed on the first move
+     */
+    public synchronized boolean isMinePlacementDeferred() {
+        return deferredMines >= 0;
+    }
+
+    /**
+     * @return the number of mines in this game, including mines whose
+     *         placement is deferred
+     */
+    public synchronized int getMineCount() {
+        return isMinePlacementDeferred() ? deferredMines : minefield.getMineCount();
+    }
+
+    /**
+     * @return the index of the square that was kept free of mines along with
+     *         its neighbors, or -1 if every square could get a mine
+     */
+    public synchronized int getSafeSquare() {
+        return safeSquare;
+    }
+
+    public synchronized boolean isWon() {
         return gameIsCompleted();
     }
 
-    public boolean isLost() {
-        return minefield.getSquares().containsAny(
-                square -> square.isOpen() && square.isMine());
+    public synchronized boolean isLost() {
+        return minefield.containsOpenMine();
     }
 
-    public boolean isOver() {
+    public synchronized boolean isOver() {
         return isWon() || isLost();
     }
 
-    public void toggleFlag(Square square) {
+    public synchronized void toggleFlag(Square square) {
         Assert.isTrue(!isOver() && !square.isOpen());
 
-        square.toggleFlag();
+        SquareChanges changes = toggleFlagAt(minefield.indexOf(square.getRow(), square.getCol()));
+        moveApplied(Move.flag(square.getRow(), square.getCol()), changes);
+    }
+
+    /**
+     * @return the flagged or unflagged square, or null if the move was not
+     *         allowed
+     */
+    private SquareChanges toggleFlagAt(int index) {
+        if (isOver() || minefield.isOpen(index)) {
+            return null;
+        }
+        minefield.toggleFlag(index);
+        SquareChanges changes = new SquareChanges();
+        changes.add(index);
+        return changes;
     }
 
-    public int getMoves() {
+    /**
+     * Chords the given open square: if as many of its neighbors are flagged as
+     * there are mines next to it, the rest of its neighbors are opened as if
+     * each of them was opened with {@link #openSquare(int, int)}. A chord
+     * that opens any squares counts as a single move.
+     *
+     * @return the number of squares opened by this move
+     */
+    public synchronized int chord(int row, int col) {
+        return apply(Move.chord(row, col)).size();
+    }
+
+    /**
+     * @return the opened squares, or null if the move was not allowed or
+     *         opened nothing
+     */
+    private SquareChanges chordAt(int index) {
+        if (isOver() || !minefield.isOpen(index)) {
+            return null;
+        }
+        int[] neighbors = new int[8];
+        int count = minefield.neighborsOf(index, neighbors);
+        int flags = 0;
+        for (int i = 0; i < count; i++) {
+            if (minefield.isFlagged(neighbors[i])) {
+                flags++;
+            }
+        }
+        if (flags != minefield.getNeighborMineCount(index)) {
+            return null;
+        }
+
+        SquareChanges opened = new SquareChanges();
+        for (int i = 0; i < count; i++) {
+            int neighbor = neighbors[i];
+            if (!minefield.isFlagged(neighbor) && minefield.setOpen(neighbor)) {
+                opened.add(neighbor);
+            }
+        }
+        if (opened.isEmpty()) {
+            return null;
+        }
+        incrementMoves();
+        for (int head = 0; head < opened.size(); head++) {
+            int square = opened.get(head);
+            if (!minefield.isMine(square)) {
+                expandOpenArea(square, neighbors, opened);
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Applies the given move like {@link #openSquare(int, int)},
+     * {@link #toggleFlag(Square)} or {@link #chord(int, int)}, except that a
+     * move that is not allowed changes nothing instead of failing.
+     *
+     * @return the squares whose state was changed by the move
+     * @throws IllegalArgumentException if the square of the move is not on
+     *             the minefield
+     */
+    public synchronized SquareChanges apply(Move move) {
+        int index = minefield.indexOf(move.getRow(), move.getCol());
+        SquareChanges changes;
+        switch (move.getType()) {
+        case OPEN:
+            changes = openSquareAt(index);
+            break;
+        case FLAG:
+            changes = toggleFlagAt(index);
+            break;
+        default:
+            changes = chordAt(index);
+            break;
+        }
+        if (changes == null) {
+            return new SquareChanges();
+        }
+        moveApplied(move, changes);
+        return changes;
+    }
+
+    public synchronized int getMoves() {
         return this.moves;
     }
 
+    /**
+     * Returns the version of the state of this game. The version grows with
+     * every move that changes the game, so a game with the same version as
+     * before has not changed since. Each game object starts from a random
+     * version, so a game restored from storage does not repeat the versions
+     * of an earlier copy of it.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
     private void incrementMoves() {
         this.moves++;
     }
@@ -61,38 +275,105 @@ public class Game {
     /**
      * @see Game#openSquare(Square)
      */
-    public void openSquare(int row, int col) {
-        openSquare(getMinefield().getSquare(row, col));
+    public synchronized int openSquare(int row, int col) {
+        SquareChanges changes = openSquareAt(minefield.indexOf(row, col));
+        if (changes == null) {
+            return 0;
+        }
+        moveApplied(Move.open(row, col), changes);
+        return changes.size();
     }
 
     /**
      * Attempts to open the given square. Opening a square that has no mines
-     * next to it leads to its neighbors being opened as well with a recursive
-     * call to openSquare.
+     * next to it leads to its neighbors being opened as well, until the opened
+     * area is surrounded by squares that have mines next to them.
      * 
      * @param square The Square object to open
+     * @return the number of squares opened by this move
      */
-    public void openSquare(Square square) {
-        if (isOver() || square.isFlagged()) {
-            return;
+    public synchronized int openSquare(Square square) {
+        return openSquare(square.getRow(), square.getCol());
+    }
+
+    /**
+     * @return the opened squares, or null if the move was not allowed
+     */
+    private SquareChanges openSquareAt(int index) {
+        if (isOver() || minefield.isFlagged(index)) {
+            return null;
+        }
+        if (isMinePlacementDeferred()) {
+            MinePlacement.placeMines(minefield, deferredMines, new SplittableRandom(seed), index);
+            deferredMines = -1;
+            safeSquare = index;
         }
         incrementMoves();
-        openRecursively(square);
+        return openArea(index);
     }
 
-    private void openRecursively(Square square) {
-        square.setOpen();
+    /**
+     * Opens the given square and floods outwards from it with a breadth first
+     * search. Each square is marked open as it is queued, so no square is
+     * visited twice and the search needs no recursion. The opened squares
+     * double as the queue of the search.
+     *
+     * @return the squares that were opened
+     */
+    private SquareChanges openArea(int start) {
+        SquareChanges opened = new SquareChanges();
+        if (minefield.setOpen(start)) {
+            opened.add(start);
+        }
+        if (minefield.isMine(start)) {
+            return opened;
+        }
 
-        SmartList<Square> neighbors = minefield.getNeighbors(square);
+        int[] neighbors = new int[8];
+        expandOpenArea(start, neighbors, opened);
+        for (int head = 0; head < opened.size(); head++) {
+            expandOpenArea(opened.get(head), neighbors, opened);
+        }
+        return opened;
+    }
 
-        /*
-         * If there game is still on and there are no mines next to the opened
-         * square, the neighbors are also opened recursively.
-         */
-        if (!isOver() && !neighbors.containsAny(s -> s.isMine())) {
-            neighbors
-                .select(s -> !s.isOpen() && !s.isFlagged())
-                .forEach(s -> openRecursively(s));
+    /**
+     * Opens the closed neighbors of the given square if it has no mines next
+     * to it, and adds them to the opened squares.
+     */
+    private void expandOpenArea(int index, int[] neighbors, SquareChanges opened) {
+        if (minefield.getNeighborMineCount(index) > 0) {
+            return;
+        }
+        int count = minefield.neighborsOf(index, neighbors);
+        for (int i = 0; i < count; i++) {
+            int neighbor = neighbors[i];
+            if (!minefield.isFlagged(neighbor) && minefield.setOpen(neighbor)) {
+                opened.add(neighbor);
+            }
+        }
+    }
+
+    /**
+     * Adds a listener that is called after each move on this game.
+     */
+    public synchronized void addListener(GameListener listener) {
+        GameListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        this.listeners = updated;
+    }
+
+    public synchronized void removeListener(GameListener listener) {
+        GameListener[] updated = Arrays.stream(listeners)
+                .filter(existing -> existing != listener)
+                .toArray(GameListener[]::new);
+        this.listeners = updated.length == 0 ? NO_LISTENERS : updated;
+    }
+
+    private void moveApplied(Move move, SquareChanges changes) {
+        version++;
+        for (GameListener listener : listeners) {
+            listener.moveApplied(this, move, changes);
         }
     }
 
@@ -101,7 +382,21 @@ public class Game {
      * @return true if the game is over
      */
     private boolean gameIsCompleted() {
-        return !minefield.getSquares().containsAny(square -> !square.isOpen() && !square.isMine());
+        return minefield.getSafeSquaresLeft() == 0;
+    }
+
+    /**
+     * @return the estimated heap memory used by this game in bytes
+     */
+    public long estimateMemoryUsage() {
+        return estimateMemoryUsage(minefield.getHeight(), minefield.getWidth());
+    }
+
+    /**
+     * @return the estimated heap memory used by a game of the given size in bytes
+     */
+    public static long estimateMemoryUsage(int rows, int cols) {
+        return 32 + Minefield.estimateMemoryUsage(rows, cols);
     }
 
     public Minefield getMinefield() {
@@ -109,7 +404,7 @@ public class Game {
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return "Moves " + getMoves() + "\n\n" + getMinefield().toString();
     }
 }
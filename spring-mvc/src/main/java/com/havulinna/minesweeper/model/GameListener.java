@@ -0,0 +1,21 @@
+package com.havulinna.minesweeper.model;
+
+/**
+ * Receives the moves applied to a {@link Game}. Listeners are called by the
+ * thread that made the move while it holds the lock of the game, so each
+ * listener sees the moves of a game one at a time in the order they were
+ * applied. Listeners should return quickly, as the game is locked until they
+ * do.
+ */
+@FunctionalInterface
+public interface GameListener {
+
+    /**
+     * Called after the given move has changed the given game.
+     *
+     * @param game the game the move was applied to
+     * @param move the applied move
+     * @param changes the squares whose state was changed by the move
+     */
+    void moveApplied(Game game, Move move, SquareChanges changes);
+}
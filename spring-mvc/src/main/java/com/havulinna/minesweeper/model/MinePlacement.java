@@ -0,0 +1,124 @@
+package com.havulinna.minesweeper.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Places mines on random squares of a minefield by sampling their indexes
+ * instead of shuffling every square.
+ *
+ * Sparse minefields use Floyd's algorithm, which draws exactly one random
+ * number per mine and keeps track of the chosen squares in the mine bitset of
+ * the minefield itself, so placing k mines takes O(k) time and allocates
+ * nothing. When more than half of the squares get a mine, the squares left
+ * without mines are sampled instead and every other square is mined.
+ *
+ * A square and its neighbors can be kept free of mines. They are left out of
+ * the sampled indexes altogether: the indexes are drawn from the remaining
+ * squares and mapped past the excluded ones, so no mine is ever drawn again
+ * and the placement still takes O(k) time.
+ *
+ * The random numbers come from a {@link SplittableRandom} owned by the caller,
+ * so games created on different threads share no generator state.
+ */
+final class MinePlacement {
+
+    private static final int[] NONE = new int[0];
+
+    private MinePlacement() {
+    }
+
+    /**
+     * Places the given amount of mines on distinct random squares of an empty
+     * minefield. If there are fewer squares than mines, every square is mined.
+     */
+    static void placeMines(Minefield minefield, int mineCount, SplittableRandom random) {
+        placeMines(minefield, mineCount, random, -1);
+    }
+
+    /**
+     * Places the given amount of mines on distinct random squares of an empty
+     * minefield, leaving out the given square and its neighbors. If there are
+     * fewer other squares than mines, every other square is mined.
+     *
+     * @param safeSquare the index of the square to keep free of mines along
+     *            with its neighbors, or -1 to consider every square
+     */
+    static void placeMines(Minefield minefield, int mineCount, SplittableRandom random, int safeSquare) {
+        int[] excluded = safeSquare < 0 ? NONE : neighborhoodOf(minefield, safeSquare);
+        int size = minefield.size() - excluded.length;
+        int count = Math.min(Math.max(mineCount, 0), size);
+
+        if (count <= size / 2) {
+            for (int j = size - count; j < size; j++) {
+                int index = squareOf(random.nextInt(j + 1), excluded);
+                minefield.setMine(minefield.isMine(index) ? squareOf(j, excluded) : index);
+            }
+        } else {
+            long[] safe = sample(size, size - count, random);
+            int next = 0;
+            int index = 0;
+            for (int square = 0; square < minefield.size(); square++) {
+                if (next < excluded.length && excluded[next] == square) {
+                    next++;
+                    continue;
+                }
+                if ((safe[index >>> 6] & (1L << index)) == 0) {
+                    minefield.setMine(square);
+                }
+                index++;
+            }
+        }
+    }
+
+    /**
+     * @return the indexes of the given square and its neighbors in ascending
+     *         order
+     */
+    private static int[] neighborhoodOf(Minefield minefield, int square) {
+        int width = minefield.getWidth();
+        int row = square / width;
+        int col = square % width;
+        int[] indexes = new int[9];
+        int count = 0;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, minefield.getHeight() - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+                indexes[count++] = r * width + c;
+            }
+        }
+        return count == indexes.length ? indexes : Arrays.copyOf(indexes, count);
+    }
+
+    /**
+     * Maps an index among the squares that are not excluded to the index of
+     * the square in the whole minefield.
+     *
+     * @param excluded the excluded squares in ascending order
+     */
+    private static int squareOf(int index, int[] excluded) {
+        for (int square : excluded) {
+            if (index >= square) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Chooses the given amount of distinct indexes below the given size with
+     * Floyd's algorithm.
+     *
+     * @return the chosen indexes as a bitset
+     */
+    private static long[] sample(int size, int count, SplittableRandom random) {
+        long[] chosen = new long[(size + 63) >>> 6];
+        for (int j = size - count; j < size; j++) {
+            int index = random.nextInt(j + 1);
+            if ((chosen[index >>> 6] & (1L << index)) != 0) {
+                index = j;
+            }
+            chosen[index >>> 6] |= 1L << index;
+        }
+        return chosen;
+    }
+}
@@ -1,37 +1,121 @@
 package com.havulinna.minesweeper.model;
 
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
 import org.springframework.util.Assert;
 
 import com.havulinna.collections.SmartList;
 
+/**
+ * Minefield keeps the state of each square in three packed bitsets: one for
+ * mines, one for opened squares and one for flags. A square's bit index in
+ * each bitset is {@code row * width + col}.
+ *
+ * {@link Square} objects returned by this class are lightweight views to those
+ * bits, so they are created only on demand and never stored by the minefield.
+ *
+ * The number of mines next to each square is kept up to date whenever a mine
+ * is placed, so it can be read in constant time. The counts are packed as four
+ * bit values, sixteen counts in each long.
+ *
+ * The minefield also counts its mines, opened squares, opened mines and flags
+ * as they change, so that the state of a whole game can be resolved without
+ * inspecting its squares.
+ */
 public class Minefield {
 
-    private final SmartList<Square> squares;
+    /**
+     * The bitsets that make up the state of a minefield.
+     */
+    public enum Layer {
+        MINES,
+        OPEN,
+        FLAGS
+    }
+
     private final int height;
     private final int width;
 
+    private final long[] mines;
+    private final long[] open;
+    private final long[] flagged;
+    private final long[] neighborMines;
+
+    private int mineCount = 0;
+    private int openCount = 0;
+    private int openMineCount = 0;
+    private int flagCount = 0;
+
     public Minefield(int rows, int cols) {
+        Assert.isTrue(rows > 0 && cols > 0);
+        Assert.isTrue((long) rows * cols <= Integer.MAX_VALUE);
         this.height = rows;
         this.width = cols;
-        Assert.isTrue(rows > 0 && cols > 0);
 
-        this.squares = createSquares(rows, cols);
+        int words = wordCount(rows * cols);
+        this.mines = new long[words];
+        this.open = new long[words];
+        this.flagged = new long[words];
+        this.neighborMines = new long[(rows * cols + 15) >>> 4];
+    }
+
+    /**
+     * Creates a minefield from bitsets previously read with
+     * {@link #getWord(Layer, int)}. The arrays must contain
+     * {@link #getWordCount()} words each.
+     */
+    public static Minefield fromBitsets(int rows, int cols, long[] mines, long[] open, long[] flagged) {
+        Minefield minefield = new Minefield(rows, cols);
+        Assert.isTrue(mines.length == minefield.getWordCount()
+                && open.length == minefield.getWordCount()
+                && flagged.length == minefield.getWordCount());
+
+        minefield.forEachSetBit(mines, index -> minefield.setMine(index));
+        minefield.forEachSetBit(open, index -> minefield.setOpen(index));
+        minefield.forEachSetBit(flagged, index -> minefield.toggleFlag(index));
+        return minefield;
     }
 
-    private static SmartList<Square> createSquares(int height, int width) {
-        SmartList<Square> squares = new SmartList<Square>();
-        for (int row=0; row<height; row++) {
-            for (int column=0; column<width; column++) {
-                squares.add(new Square(row, column));
+    /**
+     * Creates a minefield with the given amount of mines on random squares.
+     * The squares are chosen with a generator seeded with the given seed, so
+     * the same seed always places the mines on the same squares.
+     */
+    public static Minefield withRandomMines(int rows, int cols, int mineCount, long seed) {
+        return withRandomMines(rows, cols, mineCount, seed, -1);
+    }
+
+    /**
+     * Creates a minefield with the given amount of mines on random squares
+     * other than the given square and its neighbors, as placed by a game that
+     * deferred its mines until the first move.
+     *
+     * @param safeSquare the index of the square kept free of mines along with
+     *            its neighbors, or -1 to consider every square
+     */
+    public static Minefield withRandomMines(int rows, int cols, int mineCount, long seed, int safeSquare) {
+        Minefield minefield = new Minefield(rows, cols);
+        MinePlacement.placeMines(minefield, mineCount, new SplittableRandom(seed), safeSquare);
+        return minefield;
+    }
+
+    private void forEachSetBit(long[] bits, IntConsumer action) {
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i] & validBits(i);
+            while (word != 0) {
+                action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
             }
         }
-        squares.freeze();
-        return squares;
     }
 
     /**
      * Returns the Square object from the given zero-based coordinates.
-     * 
+     *
      * @throws IllegalArgumentException
      *             if the row and column parameters are not within the allowed
      *             coordinates.
@@ -39,7 +123,7 @@ public class Minefield {
     public Square getSquare(int row, int col) {
         Assert.isTrue(validateCoordinates(row, col));
 
-        return this.squares.get(row * this.width + col);
+        return new Square(this, row, col);
     }
 
     private boolean validateCoordinates(int row, int col) {
@@ -51,15 +135,41 @@ public class Minefield {
      * or connected with it by their corners.
      */
     public SmartList<Square> getNeighbors(Square square) {
-        return this.squares.select(x -> x.isNeighborOf(square)).freeze();
+        Square[] neighbors = new Square[8];
+        int count = 0;
+        for (int row = square.getRow() - 1; row <= square.getRow() + 1; row++) {
+            for (int col = square.getCol() - 1; col <= square.getCol() + 1; col++) {
+                if (validateCoordinates(row, col) && !(row == square.getRow() && col == square.getCol())) {
+                    neighbors[count++] = new Square(this, row, col);
+                }
+            }
+        }
+        return SmartList.viewOf(Arrays.asList(neighbors).subList(0, count));
     }
 
     /**
-     * Returns an unmodifiable copy of this minefield's square list.
-     * @return
+     * Returns an unmodifiable list of all squares in this minefield, ordered
+     * row by row. The list is a view to this minefield, so it is returned in
+     * constant time, and each square is created as it is accessed.
      */
     public SmartList<Square> getSquares() {
-        return new SmartList<Square>(this.squares).freeze();
+        return SmartList.viewOf(new SquareList());
+    }
+
+    private class SquareList extends AbstractList<Square> implements RandomAccess {
+
+        @Override
+        public Square get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return new Square(Minefield.this, index / width, index % width);
+        }
+
+        @Override
+        public int size() {
+            return Minefield.this.size();
+        }
     }
 
     public int getWidth() {
@@ -70,10 +180,222 @@ public class Minefield {
         return height;
     }
 
+    /**
+     * @return the total amount of squares in this minefield
+     */
+    public int size() {
+        return height * width;
+    }
+
+    /**
+     * Estimates the heap memory used by a minefield of the given size.
+     *
+     * @return the estimated size in bytes
+     */
+    public static long estimateMemoryUsage(int rows, int cols) {
+        long cells = (long) rows * cols;
+        long bitsetBytes = 16 + 8 * ((cells + 63) >>> 6);
+        long countBytes = 16 + 8 * ((cells + 15) >>> 4);
+        return 48 + 3 * bitsetBytes + countBytes;
+    }
+
+    /**
+     * Returns the bit index of the square in the given coordinates.
+     *
+     * @throws IllegalArgumentException
+     *             if the coordinates are not within this minefield.
+     */
+    public int indexOf(int row, int col) {
+        Assert.isTrue(validateCoordinates(row, col));
+        return row * width + col;
+    }
+
+    public int rowOf(int index) {
+        return index / width;
+    }
+
+    public int colOf(int index) {
+        return index % width;
+    }
+
+    public boolean isMine(int index) {
+        return isSet(mines, index);
+    }
+
+    public boolean isOpen(int index) {
+        return isSet(open, index);
+    }
+
+    public boolean isFlagged(int index) {
+        return isSet(flagged, index);
+    }
+
+    public boolean isMine(int row, int col) {
+        return isMine(indexOf(row, col));
+    }
+
+    public boolean isOpen(int row, int col) {
+        return isOpen(indexOf(row, col));
+    }
+
+    public boolean isFlagged(int row, int col) {
+        return isFlagged(indexOf(row, col));
+    }
+
+    public int getNeighborMineCount(int row, int col) {
+        return getNeighborMineCount(indexOf(row, col));
+    }
+
+    /**
+     * Places a mine on the given square and increments the neighbor mine count
+     * of each square around it. Placing a mine twice on the same square has no
+     * effect.
+     */
+    void setMine(int index) {
+        if (isMine(index)) {
+            return;
+        }
+        set(mines, index);
+        mineCount++;
+        if (isOpen(index)) {
+            openMineCount++;
+        }
+
+        int row = rowOf(index);
+        int col = colOf(index);
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+                if (r != row || c != col) {
+                    int neighbor = r * width + c;
+                    neighborMines[neighbor >>> 4] += 1L << ((neighbor & 15) << 2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the given square.
+     *
+     * @return true if the square was closed before this call
+     */
+    boolean setOpen(int index) {
+        if (isOpen(index)) {
+            return false;
+        }
+        set(open, index);
+        openCount++;
+        if (isMine(index)) {
+            openMineCount++;
+        }
+        return true;
+    }
+
+    void toggleFlag(int index) {
+        flagged[index >>> 6] ^= 1L << index;
+        flagCount += isFlagged(index) ? 1 : -1;
+    }
+
+    /**
+     * @return the number of 64 bit words in each bitset of this minefield
+     */
+    public int getWordCount() {
+        return mines.length;
+    }
+
+    /**
+     * Returns a word of the given bitset. Bit {@code i} of word {@code w} holds
+     * the state of the square with index {@code w * 64 + i}.
+     */
+    public long getWord(Layer layer, int wordIndex) {
+        switch (layer) {
+        case MINES:
+            return mines[wordIndex];
+        case OPEN:
+            return open[wordIndex];
+        default:
+            return flagged[wordIndex];
+        }
+    }
+
+    public int getMineCount() {
+        return mineCount;
+    }
+
+    public int getOpenCount() {
+        return openCount;
+    }
+
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * @return true if any square in this minefield is both open and a mine
+     */
+    public boolean containsOpenMine() {
+        return openMineCount > 0;
+    }
+
+    /**
+     * @return the number of closed squares without mines
+     */
+    public int getSafeSquaresLeft() {
+        return (size() - mineCount) - (openCount - openMineCount);
+    }
+
+    /**
+     * Writes the indexes of the neighbors of the given square into the given
+     * buffer, which must have room for at least eight values.
+     *
+     * @return the number of neighbors written into the buffer
+     */
+    int neighborsOf(int index, int[] buffer) {
+        int row = rowOf(index);
+        int col = colOf(index);
+        int count = 0;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+                if (r != row || c != col) {
+                    buffer[count++] = r * width + c;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of mines next to the given square. The count is
+     * maintained when mines are placed, so no neighbors are inspected here.
+     */
+    public int getNeighborMineCount(int index) {
+        return (int) (neighborMines[index >>> 4] >>> ((index & 15) << 2)) & 0xF;
+    }
+
+    /**
+     * Returns a mask of the bits in the given word that map to squares. Only
+     * the last word of each bitset may contain unused bits.
+     */
+    private long validBits(int wordIndex) {
+        int remaining = size() - (wordIndex << 6);
+        return remaining >= 64 ? -1L : (1L << remaining) - 1;
+    }
+
+    private static int wordCount(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
     /**
      * Creates a String representation of this minefield. The String contains as many lines
      * as there are rows, and as many characters per line as there are columns.
-     * 
+     *
      * - unopened squares are represented by '?'
      * - opened mines are represented by 'M'
      * - flagged squares are represented by 'F'
@@ -85,21 +407,20 @@ public class Minefield {
         for (int row=0; row < getHeight(); row++) {
             StringBuilder builder = new StringBuilder();
             for (int col=0; col < getWidth(); col++) {
-                Square current = getSquare(row, col);
-                builder.append(getCharForSquare(current));
+                builder.append(getCharForSquare(row * width + col));
             }
             output[row] = builder.toString();
         }
         return String.join("\n", output);
     }
 
-    private char getCharForSquare(Square square) {
-        if (square.isFlagged()) {
+    private char getCharForSquare(int index) {
+        if (isFlagged(index)) {
             return 'F';
-        } if (square.isOpen() && square.isMine()) {
+        } if (isOpen(index) && isMine(index)) {
             return 'M';
-        } else if (square.isOpen()) {
-            int mineCount = getNeighbors(square).select(x -> x.isMine()).size();
+        } else if (isOpen(index)) {
+            int mineCount = getNeighborMineCount(index);
             return String.valueOf(mineCount).charAt(0);
         } else {
             return '?';
@@ -0,0 +1,67 @@
+package com.havulinna.minesweeper.model;
+
+/**
+ * A single move made by the player: opening a square, toggling its flag, or
+ * chording an open square to open its neighbors that are not flagged.
+ */
+public final class Move {
+
+    public enum Type {
+        OPEN,
+        FLAG,
+        CHORD
+    }
+
+    private final Type type;
+    private final int row;
+    private final int col;
+
+    public Move(Type type, int row, int col) {
+        this.type = type;
+        this.row = row;
+        this.col = col;
+    }
+
+    public static Move open(int row, int col) {
+        return new Move(Type.OPEN, row, col);
+    }
+
+    public static Move flag(int row, int col) {
+        return new Move(Type.FLAG, row, col);
+    }
+
+    public static Move chord(int row, int col) {
+        return new Move(Type.CHORD, row, col);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Move)) {
+            return false;
+        }
+        Move other = (Move) obj;
+        return type == other.type && row == other.row && col == other.col;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * type.hashCode() + row) + col;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + row + "," + col;
+    }
+}
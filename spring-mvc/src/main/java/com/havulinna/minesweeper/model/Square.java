@@ -1,36 +1,56 @@
 package com.havulinna.minesweeper.model;
 
+/**
+ * A view to a single square of a {@link Minefield}. The state of the square is
+ * stored in the minefield, so any number of Square objects pointing to the same
+ * coordinates share the same state.
+ */
 public class Square {
-    private boolean isMine;
-    private boolean isOpen;
-    private boolean isFlagged;
 
+    private final Minefield minefield;
     private final int row;
     private final int col;
 
+    /** The index of the square in its minefield */
+    private final int index;
+
+    /**
+     * Creates a detached square with the given coordinates, which is backed by
+     * a minefield of its own that holds only this square.
+     */
     public Square(int row, int col) {
+        this(new Minefield(1, 1), row, col, 0);
+    }
+
+    Square(Minefield minefield, int row, int col) {
+        this(minefield, row, col, row * minefield.getWidth() + col);
+    }
+
+    private Square(Minefield minefield, int row, int col, int index) {
+        this.minefield = minefield;
         this.row = row;
         this.col = col;
+        this.index = index;
     }
 
     public boolean isMine() {
-        return isMine;
+        return minefield.isMine(index);
     }
 
     public void setMine() {
-        this.isMine = true;
+        minefield.setMine(index);
     }
 
     public boolean isOpen() {
-        return isOpen;
+        return minefield.isOpen(index);
     }
 
     public void setOpen() {
-        this.isOpen = true;
+        minefield.setOpen(index);
     }
 
     public boolean isFlagged() {
-        return isFlagged;
+        return minefield.isFlagged(index);
     }
 
     public int getRow() {
@@ -41,11 +61,33 @@ public class Square {
         return col;
     }
 
+    /**
+     * @return the minefield that holds the state of this square
+     */
+    public Minefield getMinefield() {
+        return minefield;
+    }
+
     public boolean isNeighborOf(Square other) {
-        return this != other && Math.abs(this.col - other.col) <= 1 && Math.abs(this.row - other.row) <= 1;
+        return !(this.row == other.row && this.col == other.col)
+                && Math.abs(this.col - other.col) <= 1 && Math.abs(this.row - other.row) <= 1;
     }
 
     public void toggleFlag() {
-        this.isFlagged = !isFlagged;
+        minefield.toggleFlag(index);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Square)) {
+            return false;
+        }
+        Square other = (Square) obj;
+        return minefield == other.minefield && row == other.row && col == other.col;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * System.identityHashCode(minefield) + row) + col;
     }
 }
@@ -0,0 +1,46 @@
+package com.havulinna.minesweeper.model;
+
+import java.util.Arrays;
+
+/**
+ * The minefield indexes of the squares whose state changed in a single move,
+ * in the order they were changed. Each square is listed at most once.
+ *
+ * @see Minefield#indexOf(int, int)
+ */
+public final class SquareChanges {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] squares;
+    private int size = 0;
+
+    SquareChanges() {
+        this.squares = new int[INITIAL_CAPACITY];
+    }
+
+    void add(int index) {
+        if (size == squares.length) {
+            squares = Arrays.copyOf(squares, size * 2);
+        }
+        squares[size++] = index;
+    }
+
+    /**
+     * @return the minefield index of the i:th changed square
+     */
+    public int get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+        }
+        return squares[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,292 @@
+package com.havulinna.minesweeper.persistence;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.OptionalLong;
+
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
+import com.havulinna.minesweeper.model.Minefield.Layer;
+
+/**
+ * A compact binary format for a whole game. The encoded game starts with a
+ * format version, followed by the dimensions and the move count as unsigned
+ * variable length integers, the layout of the mines, and the open and flag
+ * bitsets.
+ *
+ * The mines of a game created with a seed are stored as the seed and the mine
+ * count, from which the same mines are placed again when the game is decoded.
+ * If the game kept its first move safe, the opened square follows, or the
+ * layout tells that the mines are yet to be placed. The mines of other games
+ * are stored as a bitset.
+ *
+ * Each bitset is written in whichever of two forms is shorter: as its bytes
+ * with trailing zero bytes left out, or as the list of its set bits, each
+ * stored as the distance from the previous one. Dense bitsets such as the open
+ * squares of a game in progress use the first form, sparse ones such as the
+ * mines and flags of a large board the second. A HARD game takes well under
+ * 150 bytes.
+ *
+ * Encoding and decoding work directly on a {@link ByteBuffer}. Encoding
+ * allocates nothing, and decoding little besides the decoded game.
+ */
+public final class GameCodec {
+
+    /** The format version written by this codec */
+    public static final byte VERSION = 2;
+
+    /** An upper bound for the encoded size of any game, as a board has at most Integer.MAX_VALUE squares */
+    public static final int MAX_ENCODED_SIZE = maxEncodedSize((int) ((Integer.MAX_VALUE + 63L) / 64));
+
+    private static final byte MINE_BITSET = 0;
+    private static final byte MINE_SEED = 1;
+    private static final byte MINE_SEED_DEFERRED = 2;
+    private static final byte MINE_SEED_SAFE_SQUARE = 3;
+
+    private static final byte BYTES = 0;
+    private static final byte SET_BITS = 1;
+
+    private GameCodec() {
+    }
+
+    /**
+     * @return an upper bound for the encoded size of the given game in bytes
+     */
+    public static int maxEncodedSize(Game game) {
+        return maxEncodedSize(game.getMinefield().getWordCount());
+    }
+
+    private static int maxEncodedSize(int words) {
+        return 1 + 3 * 5 + 1 + 8 + 2 * 5 + Layer.values().length * (1 + 5 + words * 8);
+    }
+
+    /**
+     * Encodes the given game into a new array.
+     */
+    public static byte[] encode(Game game) {
+        synchronized (game) {
+            ByteBuffer buffer = ByteBuffer.allocate(maxEncodedSize(game));
+            encode(game, buffer);
+            byte[] encoded = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(encoded);
+            return encoded;
+        }
+    }
+
+    /**
+     * Encodes the given game at the current position of the given buffer and
+     * advances the position past it.
+     *
+     * @throws BufferOverflowException if the buffer has less room left than
+     *             the encoded game needs
+     */
+    public static void encode(Game game, ByteBuffer buffer) {
+        synchronized (game) {
+            Minefield minefield = game.getMinefield();
+            buffer.put(VERSION);
+            putVarint(buffer, minefield.getHeight());
+            putVarint(buffer, minefield.getWidth());
+            putVarint(buffer, game.getMoves());
+
+            OptionalLong seed = game.getSeed();
+            if (seed.isPresent()) {
+                int safeSquare = game.getSafeSquare();
+                buffer.put(game.isMinePlacementDeferred() ? MINE_SEED_DEFERRED
+                        : safeSquare >= 0 ? MINE_SEED_SAFE_SQUARE : MINE_SEED);
+                buffer.putLong(seed.getAsLong());
+                putVarint(buffer, game.getMineCount());
+                if (safeSquare >= 0) {
+                    putVarint(buffer, safeSquare);
+                }
+            } else {
+                buffer.put(MINE_BITSET);
+                putBitset(buffer, minefield, Layer.MINES);
+            }
+            putBitset(buffer, minefield, Layer.OPEN);
+            putBitset(buffer, minefield, Layer.FLAGS);
+        }
+    }
+
+    /**
+     * Decodes a game from the current position of the given buffer and
+     * advances the position past it.
+     *
+     * @throws IllegalArgumentException if the buffer does not start with a
+     *             game in a known format
+     */
+    public static Game decode(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown game format version " + version);
+        }
+        int rows = getVarint(buffer);
+        int cols = getVarint(buffer);
+        int moves = getVarint(buffer);
+        int words = (int) (((long) rows * cols + 63) >>> 6);
+
+        byte layout = buffer.get();
+        if (layout == MINE_SEED_DEFERRED) {
+            return decodeDeferred(buffer, rows, cols, words);
+        }
+        long seed = 0;
+        int safeSquare = -1;
+        long[] mines;
+        if (layout == MINE_SEED || layout == MINE_SEED_SAFE_SQUARE) {
+            seed = buffer.getLong();
+            int mineCount = getVarint(buffer);
+            if (layout == MINE_SEED_SAFE_SQUARE) {
+                safeSquare = getVarint(buffer);
+                checkBit(safeSquare, words);
+            }
+            mines = placeMines(rows, cols, mineCount, seed, safeSquare);
+        } else if (layout == MINE_BITSET) {
+            mines = getBitset(buffer, words);
+        } else {
+            throw new IllegalArgumentException("Unknown mine layout " + layout);
+        }
+        long[] open = getBitset(buffer, words);
+        long[] flagged = getBitset(buffer, words);
+
+        Minefield minefield = Minefield.fromBitsets(rows, cols, mines, open, flagged);
+        return layout == MINE_BITSET ? new Game(minefield, moves) : new Game(minefield, moves, seed, safeSquare);
+    }
+
+    /**
+     * Decodes a game whose mines are placed on its first move. Such a game has
+     * no open squares, but its squares may have been flagged.
+     */
+    private static Game decodeDeferred(ByteBuffer buffer, int rows, int cols, int words) {
+        long seed = buffer.getLong();
+        Game game = new Game(rows, cols, getVarint(buffer), seed, true);
+        getBitset(buffer, words);
+        long[] flagged = getBitset(buffer, words);
+        for (int w = 0; w < words; w++) {
+            for (long word = flagged[w]; word != 0; word &= word - 1) {
+                int bit = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (bit < rows * cols) {
+                    game.toggleFlag(game.getMinefield().getSquare(bit / cols, bit % cols));
+                }
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Places the mines of a seeded game again.
+     *
+     * @return the mine bitset of the game
+     */
+    private static long[] placeMines(int rows, int cols, int mineCount, long seed, int safeSquare) {
+        Minefield minefield = Minefield.withRandomMines(rows, cols, mineCount, seed, safeSquare);
+        long[] mines = new long[minefield.getWordCount()];
+        for (int w = 0; w < mines.length; w++) {
+            mines[w] = minefield.getWord(Layer.MINES, w);
+        }
+        return mines;
+    }
+
+    private static void putBitset(ByteBuffer buffer, Minefield minefield, Layer layer) {
+        int words = minefield.getWordCount();
+
+        // Compare the sizes of the two forms before writing either
+        int usedBytes = 0;
+        int bitCount = 0;
+        int setBitsSize = 0;
+        int previous = -1;
+        for (int w = 0; w < words; w++) {
+            long word = minefield.getWord(layer, w);
+            if (word != 0) {
+                usedBytes = w * 8 + 8 - Long.numberOfLeadingZeros(word) / 8;
+            }
+            while (word != 0) {
+                int bit = (w << 6) + Long.numberOfTrailingZeros(word);
+                setBitsSize += varintSize(bit - previous);
+                bitCount++;
+                previous = bit;
+                word &= word - 1;
+            }
+        }
+        setBitsSize += varintSize(bitCount);
+
+        if (setBitsSize < usedBytes + varintSize(usedBytes)) {
+            buffer.put(SET_BITS);
+            putVarint(buffer, bitCount);
+            previous = -1;
+            for (int w = 0; w < words; w++) {
+                long word = minefield.getWord(layer, w);
+                while (word != 0) {
+                    int bit = (w << 6) + Long.numberOfTrailingZeros(word);
+                    putVarint(buffer, bit - previous);
+                    previous = bit;
+                    word &= word - 1;
+                }
+            }
+        } else {
+            buffer.put(BYTES);
+            putVarint(buffer, usedBytes);
+            for (int i = 0; i < usedBytes; i++) {
+                buffer.put((byte) (minefield.getWord(layer, i >>> 3) >>> ((i & 7) << 3)));
+            }
+        }
+    }
+
+    private static long[] getBitset(ByteBuffer buffer, int words) {
+        long[] bits = new long[words];
+        byte form = buffer.get();
+        if (form == SET_BITS) {
+            int count = getVarint(buffer);
+            int bit = -1;
+            for (int i = 0; i < count; i++) {
+                bit += getVarint(buffer);
+                checkBit(bit, words);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        } else if (form == BYTES) {
+            int length = getVarint(buffer);
+            if (length > words * 8) {
+                throw new IllegalArgumentException("Bitset of " + length + " bytes does not fit the minefield");
+            }
+            for (int i = 0; i < length; i++) {
+                bits[i >>> 3] |= (buffer.get() & 0xFFL) << ((i & 7) << 3);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown bitset form " + form);
+        }
+        return bits;
+    }
+
+    private static void checkBit(int bit, int words) {
+        if (bit < 0 || bit >>> 6 >= words) {
+            throw new IllegalArgumentException("Bit " + bit + " does not fit the minefield");
+        }
+    }
+
+    /**
+     * Writes a non-negative value seven bits at a time, lowest bits first. The
+     * highest bit of each byte tells if more bytes follow.
+     */
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Variable length integer is too long");
+    }
+
+    static int varintSize(int value) {
+        return value == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(value)) / 7;
+    }
+}
@@ -0,0 +1,253 @@
+package com.havulinna.minesweeper.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
+import com.havulinna.minesweeper.model.Minefield.Layer;
+import com.havulinna.minesweeper.model.SquareChanges;
+
+/**
+ * Stores games in memory mapped {@link SlabFile}s. Games are grouped by size
+ * into slabs whose slot sizes are powers of two, so that every slot of a slab
+ * fits the largest game of its size class.
+ *
+ * Each slot holds the raw bitsets of the game's minefield at fixed offsets,
+ * which lets a move update only the words it changed. A slot is laid out as
+ * follows, after the header reserved by the slab file:
+ *
+ * <pre>
+ *  8  game id, most significant bits (long)
+ * 16  game id, least significant bits (long)
+ * 24  rows (int)
+ * 28  columns (int)
+ * 32  moves (int)
+ * 36  index of the square kept free of mines, or -1 if there is none (int)
+ * 40  time of last modification in milliseconds (long)
+ * 48  mines to place on the first move, or -1 if they are placed (int)
+ * 52  1 if the game has a seed, otherwise 0 (int)
+ * 56  seed of the mines of the game (long)
+ * 64  mine bitset, followed by the open and flag bitsets (longs)
+ * </pre>
+ *
+ * The mine bitset of a game that defers its mines to the first move is
+ * written in full by the update that places them.
+ *
+ * The caller is responsible for not reading or writing a game while it is
+ * being changed, for example by holding the lock of the game.
+ */
+public class MappedGameStore implements Closeable {
+
+    private static final int ID_MSB = 8;
+    private static final int ID_LSB = 16;
+    private static final int ROWS = 24;
+    private static final int COLS = 28;
+    private static final int MOVES = 32;
+    private static final int SAFE_SQUARE = 36;
+    private static final int MODIFIED = 40;
+    private static final int DEFERRED_MINES = 48;
+    private static final int SEEDED = 52;
+    private static final int SEED = 56;
+    private static final int BITSETS = 64;
+
+    private static final int MIN_SLOT_SIZE = 256;
+    private static final Pattern SLAB_FILE_NAME = Pattern.compile("slab-(\\d+)\\.dat");
+
+    private final Path directory;
+    private final Map<Integer, SlabFile> slabs = new ConcurrentHashMap<Integer, SlabFile>();
+
+    /**
+     * The position of a stored game.
+     */
+    public static final class Location {
+        private final SlabFile slab;
+        private final int slot;
+
+        private Location(SlabFile slab, int slot) {
+            this.slab = slab;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Receives the games found in the store by {@link MappedGameStore#recover(RecoveryHandler)}.
+     */
+    @FunctionalInterface
+    public interface RecoveryHandler {
+        void gameFound(UUID id, Location location, long lastModified, long estimatedBytes);
+    }
+
+    /**
+     * Opens the store in the given directory, creating the directory if it
+     * does not exist.
+     */
+    public MappedGameStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = SLAB_FILE_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    int slotSize = Integer.parseInt(matcher.group(1));
+                    slabs.put(Integer.valueOf(slotSize), new SlabFile(file, slotSize));
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes every stored game to the given handler. Only the fixed size part
+     * of each slot is read, the games themselves are read on demand with
+     * {@link #read(Location)}.
+     */
+    public void recover(RecoveryHandler handler) {
+        for (SlabFile slab : slabs.values()) {
+            for (int slot : slab.getUsedSlots()) {
+                UUID id = new UUID(slab.getLong(slot, ID_MSB), slab.getLong(slot, ID_LSB));
+                int rows = slab.getInt(slot, ROWS);
+                int cols = slab.getInt(slot, COLS);
+                long estimatedBytes = Game.estimateMemoryUsage(rows, cols);
+
+                handler.gameFound(id, new Location(slab, slot), slab.getLong(slot, MODIFIED), estimatedBytes);
+            }
+        }
+    }
+
+    /**
+     * Writes the given game into a new slot.
+     *
+     * @return the location of the stored game
+     */
+    public Location write(UUID id, Game game, long now) throws IOException {
+        Minefield minefield = game.getMinefield();
+        SlabFile slab = slabFor(minefield.getWordCount());
+        int slot = slab.allocate();
+
+        slab.putLong(slot, ID_MSB, id.getMostSignificantBits());
+        slab.putLong(slot, ID_LSB, id.getLeastSignificantBits());
+        slab.putInt(slot, ROWS, minefield.getHeight());
+        slab.putInt(slot, COLS, minefield.getWidth());
+        slab.putInt(slot, MOVES, game.getMoves());
+        slab.putInt(slot, SAFE_SQUARE, game.getSafeSquare());
+        slab.putLong(slot, MODIFIED, now);
+        slab.putInt(slot, DEFERRED_MINES, game.isMinePlacementDeferred() ? game.getMineCount() : -1);
+        slab.putInt(slot, SEEDED, game.getSeed().isPresent() ? 1 : 0);
+        slab.putLong(slot, SEED, game.getSeed().orElse(0));
+        for (Layer layer : Layer.values()) {
+            for (int word = 0; word < minefield.getWordCount(); word++) {
+                slab.putLong(slot, wordOffset(minefield, layer, word), minefield.getWord(layer, word));
+            }
+        }
+
+        slab.commit(slot);
+        return new Location(slab, slot);
+    }
+
+    /**
+     * Reads the game from the given location.
+     */
+    public Game read(Location location) {
+        SlabFile slab = location.slab;
+        int slot = location.slot;
+        int rows = slab.getInt(slot, ROWS);
+        int cols = slab.getInt(slot, COLS);
+        int words = (int) (((long) rows * cols + 63) >>> 6);
+
+        long[][] bitsets = new long[Layer.values().length][words];
+        for (Layer layer : Layer.values()) {
+            for (int word = 0; word < words; word++) {
+                bitsets[layer.ordinal()][word] = slab.getLong(slot, BITSETS + (layer.ordinal() * words + word) * 8);
+            }
+        }
+
+        int deferredMines = slab.getInt(slot, DEFERRED_MINES);
+        if (deferredMines >= 0) {
+            Game game = new Game(rows, cols, deferredMines, slab.getLong(slot, SEED), true);
+            Minefield minefield = game.getMinefield();
+            for (int word = 0; word < words; word++) {
+                for (long bits = bitsets[Layer.FLAGS.ordinal()][word]; bits != 0; bits &= bits - 1) {
+                    int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    if (index < minefield.size()) {
+                        game.toggleFlag(minefield.getSquare(index / cols, index % cols));
+                    }
+                }
+            }
+            return game;
+        }
+
+        Minefield minefield = Minefield.fromBitsets(rows, cols,
+                bitsets[Layer.MINES.ordinal()], bitsets[Layer.OPEN.ordinal()], bitsets[Layer.FLAGS.ordinal()]);
+        int moves = slab.getInt(slot, MOVES);
+        if (slab.getInt(slot, SEEDED) != 0) {
+            return new Game(minefield, moves, slab.getLong(slot, SEED), slab.getInt(slot, SAFE_SQUARE));
+        }
+        return new Game(minefield, moves);
+    }
+
+    /**
+     * Writes the given changes of the game in place. Only the words holding
+     * the changed squares are written.
+     */
+    public void update(Location location, Game game, SquareChanges changes, long now) {
+        SlabFile slab = location.slab;
+        int slot = location.slot;
+        Minefield minefield = game.getMinefield();
+
+        if (slab.getInt(slot, DEFERRED_MINES) >= 0 && !game.isMinePlacementDeferred()) {
+            for (int word = 0; word < minefield.getWordCount(); word++) {
+                slab.putLong(slot, wordOffset(minefield, Layer.MINES, word), minefield.getWord(Layer.MINES, word));
+            }
+            slab.putInt(slot, SAFE_SQUARE, game.getSafeSquare());
+            slab.putInt(slot, DEFERRED_MINES, -1);
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            int word = changes.get(i) >>> 6;
+            slab.putLong(slot, wordOffset(minefield, Layer.OPEN, word), minefield.getWord(Layer.OPEN, word));
+            slab.putLong(slot, wordOffset(minefield, Layer.FLAGS, word), minefield.getWord(Layer.FLAGS, word));
+        }
+        slab.putInt(slot, MOVES, game.getMoves());
+        slab.putLong(slot, MODIFIED, now);
+    }
+
+    /**
+     * Releases the slot of the game in the given location.
+     */
+    public void delete(Location location) {
+        location.slab.free(location.slot);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (SlabFile slab : slabs.values()) {
+            slab.close();
+        }
+    }
+
+    private static int wordOffset(Minefield minefield, Layer layer, int word) {
+        return BITSETS + (layer.ordinal() * minefield.getWordCount() + word) * 8;
+    }
+
+    private SlabFile slabFor(int words) throws IOException {
+        int slotSize = Math.max(MIN_SLOT_SIZE, Integer.highestOneBit(BITSETS + words * 24 - 1) << 1);
+        SlabFile slab = slabs.get(Integer.valueOf(slotSize));
+        if (slab == null) {
+            synchronized (slabs) {
+                slab = slabs.get(Integer.valueOf(slotSize));
+                if (slab == null) {
+                    slab = new SlabFile(directory.resolve("slab-" + slotSize + ".dat"), slotSize);
+                    slabs.put(Integer.valueOf(slotSize), slab);
+                }
+            }
+        }
+        return slab;
+    }
+}
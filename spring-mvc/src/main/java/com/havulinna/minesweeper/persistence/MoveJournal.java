@@ -0,0 +1,417 @@
+package com.havulinna.minesweeper.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Move;
+
+/**
+ * An append-only journal of games and the moves made in them. Each game is
+ * recorded as a snapshot of its state when it is created, followed by a small
+ * record for every accepted move, so the current state of any game can be
+ * rebuilt by replaying its moves on top of the snapshot. The snapshot of a
+ * game created with a seed holds the seed instead of the mines, so a new game
+ * takes only a few bytes in the journal.
+ *
+ * Records are appended to the current segment file by a background writer,
+ * which writes all pending records at once and syncs them to the storage
+ * device with a single fsync per batch. Appending never blocks the caller.
+ *
+ * {@link #compact()} keeps the journal from growing forever: it moves the
+ * appends to a new segment, folds the older segments into a snapshot file with
+ * a single snapshot record per live game, and deletes the folded segments.
+ * Recovery reads the latest snapshot file and replays the segments after it.
+ *
+ * Snapshots are encoded with {@link GameCodec}. Each record is stored as its
+ * length, a CRC32 checksum and the payload, so a record that was only
+ * partially written before a crash is detected and ignored along with
+ * anything after it.
+ */
+public class MoveJournal implements Closeable {
+
+    private static final byte SNAPSHOT = 1;
+    private static final byte MOVE = 2;
+    private static final byte REMOVE = 3;
+
+    /** The largest payload of a record: the type, the game id and a snapshot */
+    private static final int MAX_RECORD_BYTES = 17 + GameCodec.MAX_ENCODED_SIZE;
+
+    private static final int MAX_BATCH = 4096;
+    private static final ByteBuffer STOP = ByteBuffer.allocate(0);
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.dat");
+
+    private final Path directory;
+    private final BlockingQueue<ByteBuffer> pending = new LinkedBlockingQueue<ByteBuffer>();
+    private final Thread writer;
+    private final Object progress = new Object();
+    private final Object segmentLock = new Object();
+
+    private FileChannel segment;
+    private long segmentNumber;
+    private long appendedRecords = 0;
+    private long durableRecords = 0;
+    private volatile long segmentBytes = 0;
+    private volatile IOException failure;
+
+    /**
+     * Opens the journal in the given directory, creating the directory if it
+     * does not exist. New records are appended to a new segment, so that a
+     * torn record at the end of an earlier segment is never followed by
+     * valid records.
+     */
+    public MoveJournal(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+
+        long latest = Math.max(lastNumber(SEGMENT_NAME), lastNumber(SNAPSHOT_NAME));
+        openSegment(latest + 1);
+
+        this.writer = new Thread(this::writeBatches, "move-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Rebuilds the games recorded in this journal by reading the latest
+     * snapshot file and replaying the segments written after it.
+     *
+     * @return the recorded games that have not been removed, by their ids
+     */
+    public Map<UUID, Game> recover() throws IOException {
+        return replay(Long.MAX_VALUE);
+    }
+
+    /**
+     * Records a new game with a snapshot of its current state. The caller
+     * must hold the lock of the game.
+     *
+     * @throws UncheckedIOException if writing to the journal has failed
+     */
+    public void gameCreated(UUID id, Game game) {
+        checkFailure();
+        append(snapshotRecord(id, game));
+    }
+
+    /**
+     * Records a move that was accepted by the game with the given id. The
+     * move has already happened, so this never fails: callers check
+     * {@link #checkFailure()} before they let a move be made.
+     */
+    public void moveApplied(UUID id, Move move) {
+        ByteBuffer record = record(MOVE, id, 9);
+        record.put((byte) move.getType().ordinal());
+        record.putInt(move.getRow());
+        record.putInt(move.getCol());
+        append(record);
+    }
+
+    /**
+     * Records that the game with the given id no longer exists.
+     */
+    public void gameRemoved(UUID id) {
+        append(record(REMOVE, id, 0));
+    }
+
+    /**
+     * Waits until every record appended before this call has been synced to
+     * the storage device.
+     */
+    public void flush() throws IOException {
+        synchronized (progress) {
+            long target = appendedRecords;
+            while (durableRecords < target && failure == null) {
+                try {
+                    progress.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while flushing the journal", e);
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * @return the size of the current segment in bytes
+     */
+    public long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * Folds every segment written so far into a new snapshot file. Appends
+     * continue to a new segment while the old ones are being folded.
+     */
+    public synchronized void compact() throws IOException {
+        flush();
+        long folded;
+        synchronized (segmentLock) {
+            folded = segmentNumber;
+            segment.close();
+            openSegment(folded + 1);
+        }
+
+        Map<UUID, Game> games = replay(folded);
+
+        Path temporary = directory.resolve("snapshot-" + folded + ".tmp");
+        try (FileChannel snapshot = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<UUID, Game> entry : games.entrySet()) {
+                writeFully(snapshot, frame(snapshotRecord(entry.getKey(), entry.getValue())));
+            }
+            snapshot.force(true);
+        }
+        Files.move(temporary, directory.resolve("snapshot-" + folded + ".dat"), StandardCopyOption.ATOMIC_MOVE);
+
+        for (Map.Entry<Long, Path> file : files(SNAPSHOT_NAME).entrySet()) {
+            if (file.getKey().longValue() < folded) {
+                Files.delete(file.getValue());
+            }
+        }
+        for (Map.Entry<Long, Path> file : files(SEGMENT_NAME).entrySet()) {
+            if (file.getKey().longValue() <= folded) {
+                Files.delete(file.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pending.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (segmentLock) {
+            segment.close();
+        }
+        checkFailure();
+    }
+
+    private void append(ByteBuffer record) {
+        // Framed before queuing, so the writer only needs to copy bytes
+        frame(record);
+        synchronized (progress) {
+            appendedRecords++;
+            pending.add(record);
+        }
+    }
+
+    /**
+     * Writes the length and checksum of the given record in front of it and
+     * prepares it for writing.
+     */
+    private static ByteBuffer frame(ByteBuffer record) {
+        record.flip();
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, record.limit() - 8);
+        record.putInt(0, record.limit() - 8);
+        record.putInt(4, (int) crc.getValue());
+        return record;
+    }
+
+    private void writeBatches() {
+        List<ByteBuffer> batch = new ArrayList<ByteBuffer>();
+        while (true) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            pending.drainTo(batch, MAX_BATCH);
+
+            boolean stop = batch.remove(STOP);
+            try {
+                synchronized (segmentLock) {
+                    for (ByteBuffer record : batch) {
+                        segmentBytes += writeFully(segment, record);
+                    }
+                    segment.force(false);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            synchronized (progress) {
+                durableRecords += batch.size();
+                progress.notifyAll();
+            }
+            batch.clear();
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    private Map<UUID, Game> replay(long lastSegment) throws IOException {
+        Map<UUID, Game> games = new LinkedHashMap<UUID, Game>();
+
+        TreeMap<Long, Path> snapshots = files(SNAPSHOT_NAME);
+        Map.Entry<Long, Path> snapshot = snapshots.floorEntry(Long.valueOf(lastSegment));
+        long firstSegment = 0;
+        if (snapshot != null) {
+            readRecords(snapshot.getValue(), games);
+            firstSegment = snapshot.getKey().longValue() + 1;
+        }
+        for (Map.Entry<Long, Path> segmentFile : files(SEGMENT_NAME).subMap(
+                Long.valueOf(firstSegment), true, Long.valueOf(lastSegment), true).entrySet()) {
+            readRecords(segmentFile.getValue(), games);
+        }
+        return games;
+    }
+
+    private static void readRecords(Path file, Map<UUID, Game> games) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+                DataInputStream input = new DataInputStream(new BufferedInputStream(stream))) {
+            long remaining = Files.size(file);
+            while (true) {
+                ByteBuffer payload = readPayload(input, remaining);
+                if (payload == null) {
+                    return;
+                }
+                remaining -= 8 + payload.capacity();
+                applyRecord(payload, games);
+            }
+        }
+    }
+
+    /**
+     * A length longer than any record or than the rest of the file can only
+     * come from a corrupted record, so it ends the valid journal before
+     * anything is allocated for it.
+     *
+     * @param remaining the number of bytes left in the file
+     * @return the next record, or null at the end of the file or at a record
+     *         that was not completely written
+     */
+    private static ByteBuffer readPayload(DataInputStream input, long remaining) throws IOException {
+        try {
+            int length = input.readInt();
+            int checksum = input.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES || length > remaining - 8) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            input.readFully(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? ByteBuffer.wrap(payload) : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void applyRecord(ByteBuffer payload, Map<UUID, Game> games) {
+        byte type = payload.get();
+        UUID id = new UUID(payload.getLong(), payload.getLong());
+
+        switch (type) {
+        case SNAPSHOT:
+            games.put(id, GameCodec.decode(payload));
+            break;
+        case MOVE:
+            Game game = games.get(id);
+            Move.Type moveType = Move.Type.values()[payload.get()];
+            int row = payload.getInt();
+            int col = payload.getInt();
+            if (game != null) {
+                game.apply(new Move(moveType, row, col));
+            }
+            break;
+        case REMOVE:
+            games.remove(id);
+            break;
+        default:
+            throw new UncheckedIOException(new IOException("Unknown journal record type " + type));
+        }
+    }
+
+    private static ByteBuffer snapshotRecord(UUID id, Game game) {
+        ByteBuffer record = record(SNAPSHOT, id, GameCodec.maxEncodedSize(game));
+        GameCodec.encode(game, record);
+        return record;
+    }
+
+    /**
+     * Allocates a record with room for the frame, the record type, the game id
+     * and the given amount of content.
+     */
+    private static ByteBuffer record(byte type, UUID id, int contentBytes) {
+        ByteBuffer record = ByteBuffer.allocate(8 + 17 + contentBytes);
+        record.position(8);
+        record.put(type);
+        record.putLong(id.getMostSignificantBits());
+        record.putLong(id.getLeastSignificantBits());
+        return record;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer record) throws IOException {
+        ByteBuffer bytes = record.duplicate();
+        int written = 0;
+        while (bytes.hasRemaining()) {
+            written += channel.write(bytes);
+        }
+        return written;
+    }
+
+    private void openSegment(long number) throws IOException {
+        this.segment = FileChannel.open(directory.resolve("journal-" + number + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.segmentNumber = number;
+        this.segmentBytes = 0;
+    }
+
+    private long lastNumber(Pattern pattern) throws IOException {
+        TreeMap<Long, Path> files = files(pattern);
+        return files.isEmpty() ? 0 : files.lastKey().longValue();
+    }
+
+    private TreeMap<Long, Path> files(Pattern pattern) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<Long, Path>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path file : entries) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.valueOf(matcher.group(1)), file);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @throws UncheckedIOException if writing to the journal has failed, in
+     *         which case nothing recorded from now on will be durable
+     */
+    public void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Writing to the move journal failed", failure);
+        }
+    }
+}
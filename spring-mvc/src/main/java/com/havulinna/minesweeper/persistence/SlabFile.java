@@ -0,0 +1,162 @@
+package com.havulinna.minesweeper.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.springframework.util.Assert;
+
+/**
+ * A file divided into slots of a fixed size, which is mapped into memory in
+ * segments of several slots. Reads and writes go directly to the mapped
+ * memory, so they cost no system calls and are persisted by the operating
+ * system even if the process crashes.
+ *
+ * The first {@link #HEADER_BYTES} bytes of each slot are reserved for marking
+ * the slot as used. A slot returned by {@link #allocate()} is considered used
+ * after a restart only once it has been {@link #commit(int) committed}, so
+ * half written slots are never recovered.
+ */
+public class SlabFile implements Closeable {
+
+    /** Number of bytes reserved at the beginning of each slot */
+    public static final int HEADER_BYTES = 8;
+
+    private static final int USED_MARKER = 0x534C4142;
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int slotSize;
+    private final int slotsPerSegment;
+    private final BitSet usedSlots = new BitSet();
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * Opens the given slab file, creating it if it does not exist. The slots
+     * committed before the file was last closed are marked as used.
+     */
+    public SlabFile(Path path, int slotSize) throws IOException {
+        Assert.isTrue(slotSize > HEADER_BYTES && slotSize % 8 == 0);
+        this.slotSize = slotSize;
+        this.slotsPerSegment = (int) Math.max(1, SEGMENT_BYTES / slotSize);
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long segmentBytes = (long) slotSize * slotsPerSegment;
+        while ((long) segments.length * segmentBytes < channel.size()) {
+            mapSegment();
+        }
+        for (int slot = 0; slot < getCapacity(); slot++) {
+            if (getInt(slot, 0) == USED_MARKER) {
+                usedSlots.set(slot);
+            }
+        }
+    }
+
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    /**
+     * @return the number of slots currently mapped into memory
+     */
+    public int getCapacity() {
+        return segments.length * slotsPerSegment;
+    }
+
+    /**
+     * Reserves a free slot, growing the file if needed. The contents of the
+     * returned slot are zeroed.
+     */
+    public synchronized int allocate() throws IOException {
+        int slot = usedSlots.nextClearBit(0);
+        while (slot >= getCapacity()) {
+            mapSegment();
+        }
+        usedSlots.set(slot);
+
+        MappedByteBuffer segment = segmentOf(slot);
+        int offset = offsetOf(slot);
+        for (int i = 0; i < slotSize; i += 8) {
+            segment.putLong(offset + i, 0L);
+        }
+        return slot;
+    }
+
+    /**
+     * Marks the given allocated slot as used in the file itself.
+     */
+    public void commit(int slot) {
+        putInt(slot, 0, USED_MARKER);
+    }
+
+    /**
+     * Releases the given slot, so that it is neither recovered nor used until
+     * it is allocated again.
+     */
+    public synchronized void free(int slot) {
+        putInt(slot, 0, 0);
+        usedSlots.clear(slot);
+    }
+
+    /**
+     * @return the numbers of the used slots in ascending order
+     */
+    public synchronized int[] getUsedSlots() {
+        return usedSlots.stream().toArray();
+    }
+
+    public long getLong(int slot, int offset) {
+        return segmentOf(slot).getLong(offsetOf(slot) + offset);
+    }
+
+    public void putLong(int slot, int offset, long value) {
+        segmentOf(slot).putLong(offsetOf(slot) + offset, value);
+    }
+
+    public int getInt(int slot, int offset) {
+        return segmentOf(slot).getInt(offsetOf(slot) + offset);
+    }
+
+    public void putInt(int slot, int offset, int value) {
+        segmentOf(slot).putInt(offsetOf(slot) + offset, value);
+    }
+
+    /**
+     * Writes all changes in the mapped memory to the storage device.
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private MappedByteBuffer segmentOf(int slot) {
+        return segments[slot / slotsPerSegment];
+    }
+
+    private int offsetOf(int slot) {
+        return (slot % slotsPerSegment) * slotSize;
+    }
+
+    private void mapSegment() throws IOException {
+        long segmentBytes = (long) slotSize * slotsPerSegment;
+        MappedByteBuffer segment = channel.map(MapMode.READ_WRITE, segments.length * segmentBytes, segmentBytes);
+
+        MappedByteBuffer[] updated = Arrays.copyOf(segments, segments.length + 1);
+        updated[segments.length] = segment;
+        this.segments = updated;
+    }
+}
@@ -0,0 +1,101 @@
+package com.havulinna.minesweeper.service;
+
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.EndlessGame;
+
+/**
+ * Keeps the endless games in memory. Endless games are few and grow with the
+ * area explored in them, so they are not persisted. Games expire and are
+ * evicted within the limits of {@link RepositoryProperties} like the games of
+ * {@link GameRepository}.
+ *
+ * An endless game grows with every move, so its estimated memory usage is
+ * measured again whenever the game is requested. Moves redirect back to the
+ * game, so the estimate is at most one request behind the game.
+ */
+@Service
+public class EndlessGameRepository {
+
+    private final ExpiringGames<StoredGame> storedGames;
+    private final LongSupplier clock;
+
+    @Autowired
+    public EndlessGameRepository(RepositoryProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+
+    EndlessGameRepository(RepositoryProperties properties, LongSupplier clock) {
+        this.storedGames = new ExpiringGames<StoredGame>(properties, clock, stored -> {});
+        this.clock = clock;
+    }
+
+    /**
+     * Stores the given game and returns its unique id. If storing the game
+     * exceeds the limits of this repository, other games are evicted to make
+     * room for it.
+     */
+    public String store(EndlessGame game) {
+        StoredGame stored = new StoredGame(UUID.randomUUID().toString(), game, clock.getAsLong());
+        storedGames.add(stored);
+        return stored.id;
+    }
+
+    /**
+     * @throws NotFoundException when the id does not match any game
+     */
+    public EndlessGame getGameById(String id) throws NotFoundException {
+        StoredGame stored = storedGames.get(id);
+        if (stored == null) {
+            throw new NotFoundException("No endless game found with id " + id);
+        }
+        EndlessGame game = stored.game;
+        if (!stored.finished && game.isOver()) {
+            stored.finished = true;
+            storedGames.finished(stored);
+        }
+        storedGames.resize(stored, game.estimateMemoryUsage());
+        return game;
+    }
+
+    public int getSize() {
+        return storedGames.size();
+    }
+
+    /**
+     * @return the estimated memory usage of the stored games in bytes
+     */
+    public long getEstimatedBytes() {
+        return storedGames.getEstimatedBytes();
+    }
+
+    /**
+     * Removes the games that have not been requested within their timeout.
+     * Games requested since they were scheduled are scheduled again.
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void evictExpiredGames() {
+        storedGames.evictExpired();
+    }
+
+    private static final class StoredGame extends ExpiringGames.Entry {
+        private final EndlessGame game;
+        private volatile boolean finished;
+
+        private StoredGame(String id, EndlessGame game, long lastAccess) {
+            super(id, game.estimateMemoryUsage(), lastAccess);
+            this.game = game;
+        }
+
+        @Override
+        boolean isFinished() {
+            return game.isOver();
+        }
+    }
+}
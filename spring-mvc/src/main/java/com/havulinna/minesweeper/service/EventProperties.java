@@ -0,0 +1,47 @@
+package com.havulinna.minesweeper.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for streaming games to spectators with {@link GameEventBroadcaster},
+ * configured with the <code>minesweeper.events</code> prefix in
+ * application.properties.
+ */
+@Component
+@ConfigurationProperties(prefix = "minesweeper.events")
+public class EventProperties {
+
+    /** Events queued for a spectator before they are replaced with the whole game */
+    private int maxQueuedEvents = 64;
+
+    /** Threads writing events to spectators */
+    private int writerThreads = 4;
+
+    /** Milliseconds a write to a spectator may block before the spectator is dropped */
+    private long writeTimeout = 10000;
+
+    public int getMaxQueuedEvents() {
+        return maxQueuedEvents;
+    }
+
+    public void setMaxQueuedEvents(int maxQueuedEvents) {
+        this.maxQueuedEvents = maxQueuedEvents;
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+
+    public long getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(long writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+}
@@ -0,0 +1,313 @@
+package com.havulinna.minesweeper.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import com.havulinna.collections.TimingWheel;
+
+/**
+ * The games of a repository by their ids, together with the bookkeeping that
+ * removes them. Games that have not been requested within their timeout of
+ * {@link RepositoryProperties} expire, finished games sooner than ongoing
+ * ones, and when there are more games or estimated bytes than the properties
+ * allow, the games closest to expiring are evicted first. Expiry is tracked
+ * with a {@link TimingWheel}, so removing games never scans all of them.
+ *
+ * The limits apply to the games in the heap. Games that can be read again
+ * from elsewhere are only unloaded when they are evicted, and they are not
+ * counted against the limits until they are loaded again.
+ *
+ * @param <E> the type of the entries kept for the games
+ */
+final class ExpiringGames<E extends ExpiringGames.Entry> {
+
+    private static final int WHEEL_SLOTS = 1024;
+
+    private final Map<String, E> entries = new ConcurrentHashMap<String, E>();
+    private final RepositoryProperties properties;
+    private final LongSupplier clock;
+    private final Consumer<? super E> removed;
+    private final Predicate<? super E> unload;
+    private final TimingWheel<Expiry<E>> expiryWheel;
+
+    private final AtomicLong loadedCount = new AtomicLong();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    /**
+     * @param removed called with each entry after it has been removed
+     */
+    ExpiringGames(RepositoryProperties properties, LongSupplier clock, Consumer<? super E> removed) {
+        this(properties, clock, removed, entry -> false);
+    }
+
+    /**
+     * @param removed called with each entry after it has been removed
+     * @param unload called with each loaded entry to be evicted. Returns
+     *        <code>true</code> if the game of the entry was dropped from the
+     *        heap and can be loaded again, in which case the entry is kept.
+     */
+    ExpiringGames(RepositoryProperties properties, LongSupplier clock, Consumer<? super E> removed,
+            Predicate<? super E> unload) {
+        this.properties = properties;
+        this.clock = clock;
+        this.removed = removed;
+        this.unload = unload;
+
+        // One revolution of the wheel covers the longest timeout, which keeps the wheel ordered by expiry
+        long longestTimeout = Math.max(properties.getIdleTimeout(), properties.getFinishedTimeout());
+        long tickMillis = Math.max(1, (longestTimeout + WHEEL_SLOTS - 1) / WHEEL_SLOTS);
+        this.expiryWheel = new TimingWheel<Expiry<E>>(WHEEL_SLOTS + 1, tickMillis, clock.getAsLong());
+    }
+
+    /**
+     * Adds the given entry, and evicts other entries if the games no longer
+     * fit within the limits. An entry whose game is not loaded does not count
+     * against the limits until it is passed to {@link #loaded(Entry)}.
+     */
+    void add(E entry) {
+        entries.put(entry.id, entry);
+        synchronized (entry) {
+            if (entry.loaded) {
+                count(entry, 1);
+            }
+        }
+        schedule(entry);
+
+        evictWhileOverLimits();
+    }
+
+    /**
+     * Counts the game of the given entry against the limits once it has been
+     * loaded, and evicts other entries if the games no longer fit.
+     */
+    void loaded(E entry) {
+        synchronized (entry) {
+            if (entry.loaded || entries.get(entry.id) != entry) {
+                return;
+            }
+            entry.loaded = true;
+            count(entry, 1);
+        }
+        evictWhileOverLimits();
+    }
+
+    /**
+     * @return the entry with the given id marked as requested now, or null if
+     *         there is no such entry
+     */
+    E get(String id) {
+        E entry = entries.get(id);
+        if (entry != null) {
+            entry.lastAccess = clock.getAsLong();
+        }
+        return entry;
+    }
+
+    boolean contains(String id) {
+        return entries.containsKey(id);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    /**
+     * Schedules the given entry again, as its game has ended since it was
+     * scheduled and now has the shorter finished timeout.
+     */
+    void finished(E entry) {
+        schedule(entry);
+    }
+
+    /**
+     * Updates the estimated memory usage of the game of the given entry, and
+     * evicts entries if the games no longer fit within the limits.
+     */
+    void resize(E entry, long bytes) {
+        synchronized (entry) {
+            if (entries.get(entry.id) != entry) {
+                return;
+            }
+            if (entry.loaded) {
+                estimatedBytes.addAndGet(bytes - entry.bytes);
+            }
+            entry.bytes = bytes;
+        }
+        evictWhileOverLimits();
+    }
+
+    /**
+     * Removes the entries that have not been requested within their timeout.
+     * Entries that have been requested since they were scheduled are
+     * scheduled again with their new expiry time.
+     */
+    void evictExpired() {
+        long now = clock.getAsLong();
+        expiryWheel.advance(now, expiry -> {
+            E entry = expiry.entry;
+            if (entry.expiry != expiry) {
+                return; // Replaced by a later schedule
+            }
+            if (expiryOf(entry) > now) {
+                schedule(entry);
+            } else if (remove(entry)) {
+                expiredCount.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Evicts entries in the order of their expiry until the games are within
+     * the game count and memory limits.
+     */
+    private void evictWhileOverLimits() {
+        // Entries that are not loaded are skipped, and scheduled again once the loop is done
+        List<E> skipped = new ArrayList<E>();
+        while (isOverLimits()) {
+            Expiry<E> expiry = expiryWheel.pollEarliest();
+            if (expiry == null) {
+                break;
+            }
+            E candidate = expiry.entry;
+            if (candidate.expiry != expiry) {
+                continue;
+            }
+            if (!candidate.loaded) {
+                skipped.add(candidate);
+            } else if (expiryOf(candidate) > expiry.deadline) {
+                // Requested since it was scheduled, so it is not the least recently used game
+                schedule(candidate);
+            } else if (unload(candidate)) {
+                evictedCount.incrementAndGet();
+                skipped.add(candidate);
+            } else if (remove(candidate)) {
+                evictedCount.incrementAndGet();
+            }
+        }
+        for (E entry : skipped) {
+            schedule(entry);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the game of the given entry was dropped
+     *         from the heap and the entry was kept
+     */
+    private boolean unload(E entry) {
+        synchronized (entry) {
+            if (!entry.loaded || entries.get(entry.id) != entry || !unload.test(entry)) {
+                return false;
+            }
+            entry.loaded = false;
+            count(entry, -1);
+            return true;
+        }
+    }
+
+    private boolean isOverLimits() {
+        return loadedCount.get() > properties.getMaxGames()
+                || estimatedBytes.get() > properties.getMaxBytes();
+    }
+
+    /**
+     * Adds or subtracts the given entry to the totals of the loaded games.
+     * The caller must hold the lock of the entry.
+     */
+    private void count(E entry, int sign) {
+        loadedCount.addAndGet(sign);
+        estimatedBytes.addAndGet(sign * entry.bytes);
+    }
+
+    private long expiryOf(E entry) {
+        long timeout = entry.isFinished() ? properties.getFinishedTimeout() : properties.getIdleTimeout();
+        return entry.lastAccess + timeout;
+    }
+
+    private void schedule(E entry) {
+        Expiry<E> expiry = new Expiry<E>(entry, expiryOf(entry));
+        entry.expiry = expiry;
+        expiryWheel.schedule(expiry, expiry.deadline);
+    }
+
+    private boolean remove(E entry) {
+        if (entries.remove(entry.id, entry)) {
+            synchronized (entry) {
+                if (entry.loaded) {
+                    count(entry, -1);
+                }
+            }
+            removed.accept(entry);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A game kept by id. Subclasses hold the game itself.
+     */
+    abstract static class Entry {
+        final String id;
+        long bytes;
+        volatile boolean loaded;
+        volatile long lastAccess;
+        volatile Expiry<?> expiry;
+
+        /**
+         * @param bytes the estimated memory usage of the game
+         * @param lastAccess the time the game was last requested in milliseconds
+         */
+        Entry(String id, long bytes, long lastAccess) {
+            this(id, bytes, lastAccess, true);
+        }
+
+        /**
+         * @param loaded whether the game is in the heap
+         */
+        Entry(String id, long bytes, long lastAccess, boolean loaded) {
+            this.id = id;
+            this.bytes = bytes;
+            this.lastAccess = lastAccess;
+            this.loaded = loaded;
+        }
+
+        /**
+         * @return <code>true</code> if the game has ended, which gives it the
+         *         finished timeout instead of the idle timeout
+         */
+        abstract boolean isFinished();
+    }
+
+    /**
+     * An entry in the expiry wheel. Only the latest expiry of each entry is
+     * valid, earlier ones are ignored when they come up.
+     */
+    private static final class Expiry<E> {
+        private final E entry;
+        private final long deadline;
+
+        private Expiry(E entry, long deadline) {
+            this.entry = entry;
+            this.deadline = deadline;
+        }
+    }
+}
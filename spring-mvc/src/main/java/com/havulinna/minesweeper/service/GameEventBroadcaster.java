@@ -0,0 +1,364 @@
+package com.havulinna.minesweeper.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.havulinna.minesweeper.controller.response.GameResponse;
+import com.havulinna.minesweeper.controller.response.MoveResponse;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.GameListener;
+import com.havulinna.minesweeper.model.Move;
+import com.havulinna.minesweeper.model.SquareChanges;
+
+/**
+ * Streams the moves of games to spectators as server-sent events. A spectator
+ * first receives the whole game as a <code>game</code> event, and then each
+ * move as a <code>move</code> event with the squares it changed.
+ *
+ * Each move is encoded once, while the game is locked, and the same bytes are
+ * queued for every spectator of the game. Likewise the whole game is encoded
+ * at most once per version of the game, however many spectators receive it. The events are written by a small
+ * pool of writer threads, so a move never waits for a spectator. The queue of
+ * each spectator is bounded: when a spectator falls too far behind, its queued
+ * moves are dropped and it receives the whole game again instead. The changed
+ * squares are sent with their full state, so a spectator may safely receive a
+ * move that the whole game already included.
+ *
+ * Writes to a spectator block until its connection accepts them. A writer
+ * thread therefore writes one batch of events at a time and then moves on to
+ * the other spectators, and a spectator whose write has blocked for longer
+ * than the write timeout of {@link EventProperties} is dropped, which closes
+ * its connection and fails the blocked write.
+ */
+@Service
+public class GameEventBroadcaster implements Closeable {
+
+    /**
+     * Receives the encoded events of a spectator. The methods are called by
+     * one writer thread at a time.
+     */
+    public interface EventSink {
+
+        void write(byte[] events) throws IOException;
+
+        void flush() throws IOException;
+
+        /**
+         * Called once the spectator has been unsubscribed, unless it was
+         * unsubscribed with {@link Subscription#cancel()}.
+         */
+        void close();
+    }
+
+    /**
+     * A subscription of a spectator to the events of a game.
+     */
+    public interface Subscription {
+
+        /**
+         * Stops sending events to the spectator.
+         */
+        void cancel();
+    }
+
+    private static final byte[] PING = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /** The write start time of a subscriber that is not being written to */
+    private static final long NOT_WRITING = Long.MIN_VALUE;
+
+    private final ObjectMapper objectMapper;
+    private final int maxQueuedEvents;
+    private final long writeTimeout;
+    private final Executor executor;
+    private final LongSupplier clock;
+    private final Map<Game, Channel> channels = new ConcurrentHashMap<Game, Channel>();
+
+    @Autowired
+    public GameEventBroadcaster(EventProperties properties, ObjectMapper objectMapper) {
+        this(properties, objectMapper, Executors.newFixedThreadPool(properties.getWriterThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "game-events");
+            thread.setDaemon(true);
+            return thread;
+        }), System::currentTimeMillis);
+    }
+
+    GameEventBroadcaster(EventProperties properties, ObjectMapper objectMapper, Executor executor,
+            LongSupplier clock) {
+        this.objectMapper = objectMapper;
+        this.maxQueuedEvents = properties.getMaxQueuedEvents();
+        this.writeTimeout = properties.getWriteTimeout();
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts sending the events of the given game to the given sink, starting
+     * with the whole game.
+     *
+     * @param id the id of the game, included in the <code>game</code> events
+     */
+    public Subscription subscribe(String id, Game game, EventSink sink) {
+        synchronized (game) {
+            Channel channel = channels.get(game);
+            if (channel == null) {
+                channel = new Channel(id, game);
+                game.addListener(channel);
+                channels.put(game, channel);
+            }
+            Subscriber subscriber = new Subscriber(channel, sink);
+            channel.subscribers.add(subscriber);
+            subscriber.resync();
+            return subscriber::cancel;
+        }
+    }
+
+    /**
+     * @return the number of spectators of all games
+     */
+    public int getSubscriberCount() {
+        int count = 0;
+        for (Channel channel : channels.values()) {
+            count += channel.subscribers.size();
+        }
+        return count;
+    }
+
+    /**
+     * Sends a comment to every spectator, so that idle connections are kept
+     * open and closed ones are noticed.
+     */
+    @Scheduled(fixedDelay = 15000)
+    public void ping() {
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.offer(PING);
+            }
+        }
+    }
+
+    /**
+     * Drops the spectators whose write has blocked for longer than the write
+     * timeout, so that they release their writer threads to the others.
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void dropSlowSpectators() {
+        long deadline = clock.getAsLong() - writeTimeout;
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                long started = subscriber.writeStarted;
+                if (started != NOT_WRITING && started < deadline && subscriber.cancel()) {
+                    subscriber.sink.close();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    /**
+     * @return the given data as an event with the given name
+     */
+    private byte[] encode(String event, Object data) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode " + event + " event", e);
+        }
+        byte[] prefix = ("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = Arrays.copyOf(prefix, prefix.length + json.length + 2);
+        System.arraycopy(json, 0, encoded, prefix.length, json.length);
+        encoded[encoded.length - 2] = '\n';
+        encoded[encoded.length - 1] = '\n';
+        return encoded;
+    }
+
+    /**
+     * The spectators of a single game.
+     */
+    private final class Channel implements GameListener {
+        private final String id;
+        private final Game game;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<Subscriber>();
+
+        /** The latest game event, and the version of the game it was encoded from */
+        private byte[] gameEvent;
+        private long gameEventVersion;
+
+        private Channel(String id, Game game) {
+            this.id = id;
+            this.game = game;
+        }
+
+        /**
+         * @return the whole game as a game event, encoded again only if the
+         *         game has changed. The caller must hold the lock of the game.
+         */
+        private byte[] gameEvent() {
+            long version = game.getVersion();
+            if (gameEvent == null || gameEventVersion != version) {
+                gameEvent = encode("game", new GameResponse(id, game));
+                gameEventVersion = version;
+            }
+            return gameEvent;
+        }
+
+        @Override
+        public void moveApplied(Game game, Move move, SquareChanges changes) {
+            byte[] event = encode("move", new MoveResponse(game, changes));
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+
+        private void remove(Subscriber subscriber) {
+            synchronized (game) {
+                subscribers.remove(subscriber);
+                if (subscribers.isEmpty() && channels.remove(game, this)) {
+                    game.removeListener(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * A single spectator. Events are queued by the threads that apply moves
+     * and written by a writer thread, which is scheduled whenever the queue
+     * becomes non-empty. A lock of a game is always taken before the lock of a
+     * subscriber.
+     */
+    private final class Subscriber {
+        private final Channel channel;
+        private final EventSink sink;
+        private final ArrayDeque<byte[]> queue = new ArrayDeque<byte[]>();
+
+        /** When the write in progress started, or {@link #NOT_WRITING} */
+        private volatile long writeStarted = NOT_WRITING;
+
+        /** Whether the whole game is to be sent instead of the queued events */
+        private boolean resync = false;
+        private boolean scheduled = false;
+        private boolean cancelled = false;
+
+        private Subscriber(Channel channel, EventSink sink) {
+            this.channel = channel;
+            this.sink = sink;
+        }
+
+        private synchronized void offer(byte[] event) {
+            if (cancelled || resync) {
+                return;
+            }
+            if (queue.size() >= maxQueuedEvents) {
+                queue.clear();
+                resync = true;
+            } else {
+                queue.add(event);
+            }
+            schedule();
+        }
+
+        private synchronized void resync() {
+            queue.clear();
+            resync = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Writes the events queued so far, and then schedules the writing of
+         * any events queued meanwhile behind the other spectators.
+         */
+        private void drain() {
+            List<byte[]> events = take();
+            if (events == null) {
+                return;
+            }
+            try {
+                writeStarted = clock.getAsLong();
+                for (byte[] event : events) {
+                    sink.write(event);
+                }
+                sink.flush();
+            } catch (IOException | RuntimeException e) {
+                if (cancel()) {
+                    sink.close();
+                }
+                return;
+            } finally {
+                writeStarted = NOT_WRITING;
+            }
+            executor.execute(this::drain);
+        }
+
+        /**
+         * @return the events to write next, or null if there are none
+         */
+        private List<byte[]> take() {
+            synchronized (this) {
+                if (cancelled || (!resync && queue.isEmpty())) {
+                    scheduled = false;
+                    return null;
+                }
+                if (!resync) {
+                    List<byte[]> events = new ArrayList<byte[]>(queue);
+                    queue.clear();
+                    return events;
+                }
+            }
+            synchronized (channel.game) {
+                synchronized (this) {
+                    queue.clear();
+                    resync = false;
+                }
+                return Collections.singletonList(channel.gameEvent());
+            }
+        }
+
+        /**
+         * @return <code>true</code> if this call cancelled the subscriber,
+         *         <code>false</code> if it was already cancelled
+         */
+        private boolean cancel() {
+            synchronized (this) {
+                if (cancelled) {
+                    return false;
+                }
+                cancelled = true;
+                queue.clear();
+            }
+            channel.remove(this);
+            return true;
+        }
+    }
+}
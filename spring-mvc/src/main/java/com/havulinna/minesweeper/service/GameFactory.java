@@ -0,0 +1,70 @@
+package com.havulinna.minesweeper.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.havulinna.minesweeper.exception.BadRequestException;
+import com.havulinna.minesweeper.model.Difficulty;
+import com.havulinna.minesweeper.model.Game;
+
+/**
+ * Creates new games of the predefined difficulties or of custom sizes. Custom
+ * sizes are validated before anything is allocated for the game, so a request
+ * for a board that would not fit the configured memory limit is rejected
+ * cheaply.
+ */
+@Service
+public class GameFactory {
+
+    private final GameProperties properties;
+
+    @Autowired
+    public GameFactory(GameProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Creates a game of the given difficulty with mines placed with the given
+     * seed, or a random seed if it is null. If the first move is to be safe,
+     * the mines are placed on the first move, away from the opened square.
+     */
+    public Game newGame(Difficulty difficulty, Long seed, boolean safeFirstMove) {
+        return new Game(difficulty, seedOrRandom(seed), safeFirstMove);
+    }
+
+    /**
+     * Creates a game with the given size and amount of mines, placed with the
+     * given seed or a random seed if it is null. If the first move is to be
+     * safe, the mines are placed on the first move, away from the opened
+     * square.
+     *
+     * @throws BadRequestException if the size is not positive, the game would
+     *             use more memory than allowed, or there is no room for a
+     *             square without a mine
+     */
+    public Game newGame(int rows, int cols, int mineCount, Long seed, boolean safeFirstMove)
+            throws BadRequestException {
+        if (rows <= 0 || cols <= 0) {
+            throw new BadRequestException("The board must have at least one row and one column");
+        }
+        long squares = (long) rows * cols;
+        if (squares > Integer.MAX_VALUE) {
+            throw new BadRequestException("The board cannot have more than " + Integer.MAX_VALUE + " squares");
+        }
+        long bytes = Game.estimateMemoryUsage(rows, cols);
+        if (bytes > properties.getMaxBytes()) {
+            throw new BadRequestException("A board of " + rows + "x" + cols + " needs " + bytes
+                    + " bytes, which is over the limit of " + properties.getMaxBytes() + " bytes");
+        }
+        if (mineCount < 0 || mineCount >= squares) {
+            throw new BadRequestException("The number of mines must be between 0 and " + (squares - 1));
+        }
+        return new Game(rows, cols, mineCount, seedOrRandom(seed), safeFirstMove);
+    }
+
+    private static long seedOrRandom(Long seed) {
+        return seed == null ? ThreadLocalRandom.current().nextLong() : seed.longValue();
+    }
+}
@@ -0,0 +1,36 @@
+package com.havulinna.minesweeper.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits for custom games created by {@link GameFactory} and for the moves
+ * made on them, configured with the <code>minesweeper.game</code> prefix in
+ * application.properties.
+ */
+@Component
+@ConfigurationProperties(prefix = "minesweeper.game")
+public class GameProperties {
+
+    /** Maximum estimated memory usage of a single game in bytes */
+    private long maxBytes = 8L * 1024 * 1024;
+
+    /** Maximum number of moves in a single batch */
+    private int maxBatchMoves = 10000;
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public int getMaxBatchMoves() {
+        return maxBatchMoves;
+    }
+
+    public void setMaxBatchMoves(int maxBatchMoves) {
+        this.maxBatchMoves = maxBatchMoves;
+    }
+}
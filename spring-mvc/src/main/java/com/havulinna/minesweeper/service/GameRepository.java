@@ -1,40 +1,124 @@
 package com.havulinna.minesweeper.service;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
+import java.util.function.LongSupplier;
 
-import org.springframework.stereotype.Service;
+import org.springframework.scheduling.annotation.Scheduled;
 
 import com.havulinna.minesweeper.exception.NotFoundException;
 import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.GameListener;
 
-@Service
+/**
+ * Keeps the games in memory. The repository is safe to use from multiple
+ * threads: lookups and stores go through a concurrent map without locking the
+ * whole repository, and moves on a single game are serialized by the
+ * {@link Game} object itself.
+ *
+ * Games that have not been requested for a while are evicted as configured in
+ * {@link RepositoryProperties}. Finished games expire sooner than ongoing ones,
+ * and when the repository exceeds its game count or memory limit, the games
+ * closest to expiring are evicted first, as tracked by {@link ExpiringGames}.
+ *
+ * Subclasses may keep games outside the heap. Such games are registered with
+ * {@link #storeUnloaded(String, long, long)} and read with
+ * {@link #loadGame(String)} when they are first requested. Games evicted to
+ * keep within the limits may be dropped from the heap with
+ * {@link #unloadGame(String, Game)} instead of being removed, in which case
+ * they are read again when they are next requested.
+ */
 public class GameRepository {
 
-    private Map<String, Game> storedGames = new HashMap<String, Game>();
+    private final ExpiringGames<StoredGame> storedGames;
+    private final LongSupplier clock;
+
+    public GameRepository() {
+        this(new RepositoryProperties());
+    }
+
+    public GameRepository(RepositoryProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+
+    GameRepository(RepositoryProperties properties, LongSupplier clock) {
+        this.storedGames = new ExpiringGames<StoredGame>(properties, clock, this::removed, this::unload);
+        this.clock = clock;
+    }
 
     /**
      * @return <code>true</code> if this repository contains a game with the
      *         given id
      */
     public boolean containsGame(String id) {
-        return storedGames.containsKey(id);
+        return storedGames.contains(id);
     }
 
     /**
      * Stores the given Game in memory. The game can later be requested
-     * with the returned unique id.
+     * with the returned unique id. If storing the game exceeds the limits of
+     * this repository, other games are evicted to make room for it.
      *
      * @param newGame the game to store
      * @return the ID assigned to the given game
      */
     public String store(Game newGame) {
         String uniqueId = UUID.randomUUID().toString();
-        storedGames.put(uniqueId, newGame);
+        store(uniqueId, newGame);
         return uniqueId;
     }
 
+    /**
+     * Stores the given game with the given unique id.
+     */
+    protected void store(String id, Game game) {
+        StoredGame stored = new StoredGame(id, game, game.estimateMemoryUsage(), clock.getAsLong());
+        watchForEnd(stored);
+        storedGames.add(stored);
+    }
+
+    /**
+     * Registers a game that is not yet in memory. The game is read with
+     * {@link #loadGame(String)} when it is first requested.
+     *
+     * @param id the unique id of the game
+     * @param bytes the estimated memory usage of the game once it is loaded
+     * @param lastAccess the time the game was last used in milliseconds
+     */
+    protected final void storeUnloaded(String id, long bytes, long lastAccess) {
+        storedGames.add(new StoredGame(id, null, bytes, lastAccess));
+    }
+
+    /**
+     * Reads a game registered with {@link #storeUnloaded(String, long, long)}.
+     * This repository keeps all of its games in memory, so by default there
+     * is nothing to load.
+     *
+     * @throws NotFoundException if the game can no longer be read
+     */
+    protected Game loadGame(String id) throws NotFoundException {
+        throw new NotFoundException("No game found with id " + id);
+    }
+
+    /**
+     * Called with a game evicted to keep this repository within its limits.
+     * Returning <code>true</code> drops the game from the heap but keeps it
+     * in the repository, and the game is read with {@link #loadGame(String)}
+     * when it is next requested. By default evicted games are removed.
+     *
+     * @return <code>true</code> if the game can be loaded again
+     */
+    protected boolean unloadGame(String id, Game game) {
+        return false;
+    }
+
+    /**
+     * Called after the given game has been removed from this repository.
+     *
+     * @param game the removed game, or null if it was never loaded
+     */
+    protected void gameRemoved(String id, Game game) {
+    }
+
     /**
      * Returns the game stored with the given id. If no matching game is found,
      * a new {@link NotFoundException} is thrown
@@ -44,10 +128,14 @@ public class GameRepository {
      * @throws NotFoundException when id does not match any game
      */
     public Game getGameById(String id) throws NotFoundException {
-        Game game = storedGames.get(id);
-        if (game == null) {
+        StoredGame stored = storedGames.get(id);
+        if (stored == null) {
             throw new NotFoundException("No game found with id " + id);
         }
+        Game game = stored.game;
+        if (game == null) {
+            game = load(stored);
+        }
         return game;
     }
 
@@ -58,4 +146,109 @@ public class GameRepository {
     public int getSize() {
         return storedGames.size();
     }
+
+    /**
+     * @return the estimated memory usage of the games in the heap in bytes
+     */
+    public long getEstimatedBytes() {
+        return storedGames.getEstimatedBytes();
+    }
+
+    /**
+     * @return the number of games removed because they were not requested in time
+     */
+    public long getExpiredCount() {
+        return storedGames.getExpiredCount();
+    }
+
+    /**
+     * @return the number of games removed or unloaded to keep the repository
+     *         within its limits
+     */
+    public long getEvictedCount() {
+        return storedGames.getEvictedCount();
+    }
+
+    /**
+     * Removes the games that have not been requested within their timeout.
+     * Games that have been requested since they were scheduled are scheduled
+     * again with their new expiry time.
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void evictExpiredGames() {
+        storedGames.evictExpired();
+    }
+
+    private Game load(StoredGame stored) throws NotFoundException {
+        Game game;
+        synchronized (stored) {
+            if (stored.game == null) {
+                stored.game = loadGame(stored.id);
+                watchForEnd(stored);
+            }
+            game = stored.game;
+        }
+        storedGames.loaded(stored);
+        return game;
+    }
+
+    /**
+     * Finished games have a shorter timeout, which is scheduled as soon as the
+     * game ends rather than when the game is next requested.
+     */
+    private void watchForEnd(StoredGame stored) {
+        GameListener listener = (game, move, changes) -> {
+            if (game.isOver()) {
+                storedGames.finished(stored);
+            }
+        };
+        stored.game.addListener(listener);
+        stored.endListener = listener;
+        if (stored.game.isOver()) {
+            storedGames.finished(stored);
+        }
+    }
+
+    /**
+     * Called by {@link ExpiringGames} while holding the lock of the entry, so
+     * the game is not loaded again while it is being unloaded.
+     */
+    private boolean unload(StoredGame stored) {
+        Game game = stored.game;
+        if (game == null || !unloadGame(stored.id, game)) {
+            return false;
+        }
+        game.removeListener(stored.endListener);
+        stored.endListener = null;
+        stored.game = null;
+        return true;
+    }
+
+    private void removed(StoredGame stored) {
+        Game game;
+        synchronized (stored) {
+            game = stored.game;
+            if (stored.endListener != null) {
+                game.removeListener(stored.endListener);
+                stored.endListener = null;
+            }
+        }
+        gameRemoved(stored.id, game);
+    }
+
+    private static final class StoredGame extends ExpiringGames.Entry {
+        private volatile Game game;
+        private volatile GameListener endListener;
+
+        private StoredGame(String id, Game game, long bytes, long lastAccess) {
+            super(id, bytes, lastAccess, game != null);
+            this.game = game;
+        }
+
+        @Override
+        boolean isFinished() {
+            Game loaded = game;
+            return loaded != null && loaded.isOver();
+        }
+    }
 }
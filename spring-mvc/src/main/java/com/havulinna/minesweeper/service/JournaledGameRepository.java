@@ -0,0 +1,116 @@
+package com.havulinna.minesweeper.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.GameListener;
+import com.havulinna.minesweeper.persistence.MoveJournal;
+
+/**
+ * A {@link GameRepository} that records every game and every accepted move in
+ * a {@link MoveJournal}, so the games survive restarts of the application.
+ *
+ * On startup the games are rebuilt by replaying the journal. The journal is
+ * compacted in the background whenever its current segment has grown past the
+ * configured size.
+ */
+public class JournaledGameRepository extends GameRepository implements Closeable {
+
+    private final MoveJournal journal;
+    private final long compactionBytes;
+    private final Map<String, GameListener> listeners = new ConcurrentHashMap<String, GameListener>();
+
+    public JournaledGameRepository(RepositoryProperties properties, Path directory) throws IOException {
+        this(properties, directory, System::currentTimeMillis);
+    }
+
+    JournaledGameRepository(RepositoryProperties properties, Path directory, LongSupplier clock) throws IOException {
+        super(properties, clock);
+        this.journal = new MoveJournal(directory);
+        this.compactionBytes = properties.getJournalCompactionBytes();
+
+        for (Map.Entry<UUID, Game> recovered : journal.recover().entrySet()) {
+            String id = recovered.getKey().toString();
+            attach(id, recovered.getValue());
+            super.store(id, recovered.getValue());
+        }
+    }
+
+    @Override
+    protected void store(String id, Game game) {
+        synchronized (game) {
+            journal.gameCreated(UUID.fromString(id), game);
+            attach(id, game);
+        }
+        super.store(id, game);
+    }
+
+    /**
+     * Fails the request before it can make a move once writing to the journal
+     * has failed, as the move could no longer be recorded.
+     *
+     * @throws UncheckedIOException if writing to the journal has failed
+     */
+    @Override
+    public Game getGameById(String id) throws NotFoundException {
+        journal.checkFailure();
+        return super.getGameById(id);
+    }
+
+    @Override
+    protected void gameRemoved(String id, Game game) {
+        GameListener listener = listeners.remove(id);
+        if (listener == null) {
+            return;
+        }
+        synchronized (game) {
+            game.removeListener(listener);
+            journal.gameRemoved(UUID.fromString(id));
+        }
+    }
+
+    /**
+     * Folds the journal into a snapshot once its current segment has grown
+     * past the configured size.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void compactJournal() {
+        if (journal.getSegmentBytes() < compactionBytes) {
+            return;
+        }
+        try {
+            journal.compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not compact the move journal", e);
+        }
+    }
+
+    /**
+     * Waits until everything recorded so far has been written to the journal.
+     */
+    public void flush() throws IOException {
+        journal.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    private void attach(String id, Game game) {
+        UUID uuid = UUID.fromString(id);
+        GameListener listener = (changed, move, changes) -> journal.moveApplied(uuid, move);
+        listeners.put(id, listener);
+        game.addListener(listener);
+    }
+}
@@ -0,0 +1,135 @@
+package com.havulinna.minesweeper.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.GameListener;
+import com.havulinna.minesweeper.persistence.MappedGameStore;
+import com.havulinna.minesweeper.persistence.MappedGameStore.Location;
+
+/**
+ * A {@link GameRepository} that keeps its games in memory mapped files in
+ * addition to the heap, so the games survive restarts of the application.
+ *
+ * Each move is written in place to the slot of its game as it is applied. On
+ * startup the stored games are only registered by their ids, and each game is
+ * read from its slot when it is first requested. Games evicted to keep the
+ * heap within its limits are only unloaded and read again from their slots
+ * when they are next requested, while expired games are removed from the
+ * files as well.
+ */
+public class MappedGameRepository extends GameRepository implements Closeable {
+
+    private final MappedGameStore store;
+    private final LongSupplier clock;
+    private final Map<String, Mapping> mappings = new ConcurrentHashMap<String, Mapping>();
+
+    public MappedGameRepository(RepositoryProperties properties, Path directory) throws IOException {
+        this(properties, directory, System::currentTimeMillis);
+    }
+
+    MappedGameRepository(RepositoryProperties properties, Path directory, LongSupplier clock) throws IOException {
+        super(properties, clock);
+        this.store = new MappedGameStore(directory);
+        this.clock = clock;
+
+        store.recover((id, location, lastModified, estimatedBytes) -> {
+            mappings.put(id.toString(), new Mapping(location));
+            storeUnloaded(id.toString(), estimatedBytes, lastModified);
+        });
+    }
+
+    @Override
+    protected void store(String id, Game game) {
+        Location location;
+        try {
+            synchronized (game) {
+                location = store.write(UUID.fromString(id), game, clock.getAsLong());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store game " + id, e);
+        }
+        mappings.put(id, attach(game, new Mapping(location)));
+        super.store(id, game);
+    }
+
+    @Override
+    protected Game loadGame(String id) throws NotFoundException {
+        Mapping mapping = mappings.get(id);
+        if (mapping == null) {
+            throw new NotFoundException("No game found with id " + id);
+        }
+        Game game = store.read(mapping.location);
+        attach(game, mapping);
+        return game;
+    }
+
+    /**
+     * Keeps the slot of the evicted game, so that the game can be read again.
+     * The listener of the game is removed while holding the lock of the game,
+     * so the slot is written only through the game that is loaded next.
+     */
+    @Override
+    protected boolean unloadGame(String id, Game game) {
+        Mapping mapping = mappings.get(id);
+        if (mapping == null) {
+            return false;
+        }
+        synchronized (game) {
+            game.removeListener(mapping.listener);
+        }
+        return true;
+    }
+
+    /**
+     * Releases the slot of the removed game. The listener of the game is
+     * removed while holding the lock of the game, so no move can write to the
+     * slot after it has been released.
+     */
+    @Override
+    protected void gameRemoved(String id, Game game) {
+        Mapping mapping = mappings.remove(id);
+        if (mapping == null) {
+            return;
+        }
+        if (game != null) {
+            synchronized (game) {
+                game.removeListener(mapping.listener);
+                store.delete(mapping.location);
+            }
+        } else {
+            store.delete(mapping.location);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    private Mapping attach(Game game, Mapping mapping) {
+        game.addListener(mapping.listener);
+        return mapping;
+    }
+
+    /**
+     * The slot of a stored game and the listener writing its moves to the slot.
+     */
+    private final class Mapping {
+        private final Location location;
+        private final GameListener listener;
+
+        private Mapping(Location location) {
+            this.location = location;
+            this.listener = (game, move, changes) -> store.update(location, game, changes, clock.getAsLong());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.havulinna.minesweeper.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Chooses the {@link GameRepository} implementation. Games are kept in memory
+ * mapped files when <code>minesweeper.repository.directory</code> is set,
+ * recorded in a move journal when <code>minesweeper.repository.journal</code>
+ * is set, and only in the heap otherwise.
+ */
+@Configuration
+public class RepositoryConfiguration {
+
+    @Bean
+    public GameRepository gameRepository(RepositoryProperties properties) throws IOException {
+        if (isSet(properties.getDirectory())) {
+            return new MappedGameRepository(properties, Paths.get(properties.getDirectory()));
+        }
+        if (isSet(properties.getJournal())) {
+            return new JournaledGameRepository(properties, Paths.get(properties.getJournal()));
+        }
+        return new GameRepository(properties);
+    }
+
+    private static boolean isSet(String path) {
+        return path != null && !path.isEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+package com.havulinna.minesweeper.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits for the games kept in {@link GameRepository} and
+ * {@link EndlessGameRepository}, configured with the
+ * <code>minesweeper.repository</code> prefix in application.properties.
+ */
+@Component
+@ConfigurationProperties(prefix = "minesweeper.repository")
+public class RepositoryProperties {
+
+    /** Milliseconds an unfinished game is kept after it was last requested */
+    private long idleTimeout = TimeUnit.HOURS.toMillis(1);
+
+    /** Milliseconds a won or lost game is kept after it was last requested */
+    private long finishedTimeout = TimeUnit.MINUTES.toMillis(5);
+
+    /** Maximum number of games in the heap, least recently used games are evicted first */
+    private int maxGames = 100000;
+
+    /** Maximum estimated memory usage of the games in the heap in bytes */
+    private long maxBytes = 256L * 1024 * 1024;
+
+    /** Directory for memory mapped game files, games are kept only in the heap if not set */
+    private String directory;
+
+    /** Directory for the move journal, used only if no directory for memory mapped files is set */
+    private String journal;
+
+    /** Size in bytes the current journal segment may grow to before it is compacted */
+    private long journalCompactionBytes = 64L * 1024 * 1024;
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getFinishedTimeout() {
+        return finishedTimeout;
+    }
+
+    public void setFinishedTimeout(long finishedTimeout) {
+        this.finishedTimeout = finishedTimeout;
+    }
+
+    public int getMaxGames() {
+        return maxGames;
+    }
+
+    public void setMaxGames(int maxGames) {
+        this.maxGames = maxGames;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public String getJournal() {
+        return journal;
+    }
+
+    public void setJournal(String journal) {
+        this.journal = journal;
+    }
+
+    public long getJournalCompactionBytes() {
+        return journalCompactionBytes;
+    }
+
+    public void setJournalCompactionBytes(long journalCompactionBytes) {
+        this.journalCompactionBytes = journalCompactionBytes;
+    }
+}
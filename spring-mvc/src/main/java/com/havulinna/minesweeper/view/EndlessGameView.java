@@ -0,0 +1,80 @@
+package com.havulinna.minesweeper.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.havulinna.minesweeper.model.EndlessGame;
+import com.havulinna.minesweeper.view.GameView.State;
+
+/**
+ * A view to a rectangular window of an {@link EndlessGame}, centered on the
+ * given square. Only the chunks under the window are materialized for
+ * rendering it.
+ */
+public class EndlessGameView {
+
+    public static final int ROWS = 20;
+    public static final int COLS = 30;
+
+    /** The number of squares the window moves at a time */
+    public static final int STEP = 10;
+
+    private final EndlessGame game;
+    private final int centerRow;
+    private final int centerCol;
+
+    public EndlessGameView(EndlessGame game, int centerRow, int centerCol) {
+        this.game = game;
+        this.centerRow = centerRow;
+        this.centerCol = centerCol;
+    }
+
+    public String getCssClass() {
+        return resolveState().cssClass;
+    }
+
+    public String getStatusText() {
+        return resolveState().message;
+    }
+
+    private State resolveState() {
+        return game.isLost() ? State.LOST : State.ON;
+    }
+
+    public int getMoves() {
+        return game.getMoves();
+    }
+
+    public long getScore() {
+        return game.getScore();
+    }
+
+    public int getCenterRow() {
+        return centerRow;
+    }
+
+    public int getCenterCol() {
+        return centerCol;
+    }
+
+    /**
+     * Returns the rows of the window, each containing a {@link SquareView}
+     * for every square of the row.
+     */
+    public List<List<SquareView>> getRows() {
+        int firstRow = centerRow - ROWS / 2;
+        int firstCol = centerCol - COLS / 2;
+        List<List<SquareView>> rows = new ArrayList<List<SquareView>>(ROWS);
+
+        synchronized (game) {
+            for (int row = firstRow; row < firstRow + ROWS; row++) {
+                List<SquareView> squares = new ArrayList<SquareView>(COLS);
+                for (int col = firstCol; col < firstCol + COLS; col++) {
+                    squares.add(new SquareView(game, row, col));
+                }
+                rows.add(squares);
+            }
+        }
+        return rows;
+    }
+}
@@ -1,9 +1,12 @@
 package com.havulinna.minesweeper.view;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
 
 import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
+import com.havulinna.minesweeper.model.Move;
 
 
 public class GameView {
@@ -22,21 +25,82 @@ public class GameView {
         }
     }
 
+    /**
+     * Display codes of squares besides open squares, which are coded by their
+     * neighbor mine counts. Mines are only told apart once the game is lost.
+     */
+    private static final int CLOSED = 9;
+    private static final int FLAGGED = 10;
+    private static final int MINE = 11;
+    private static final int FLAGGED_MINE = 12;
+    private static final int OPEN_MINE = 13;
+
+    /** The start of the table cell of each display code, up to the attributes of its button */
+    private static final String[] CELL_STARTS = new String[OPEN_MINE + 1];
+
+    /** The text of the button of each display code and the end of the table cell */
+    private static final String[] CELL_ENDS = new String[OPEN_MINE + 1];
+
+    static {
+        for (int count = 0; count <= 8; count++) {
+            setCell(count, SquareView.OPEN_CSS_CLASS, count > 0 ? String.valueOf(count) : " ");
+        }
+        setCell(CLOSED, SquareView.CLOSED_CSS_CLASS, " ");
+        setCell(FLAGGED, SquareView.CLOSED_CSS_CLASS + " " + SquareView.FLAGGED_CSS_CLASS, "?");
+        setCell(MINE, SquareView.CLOSED_CSS_CLASS + " " + SquareView.MINE_CSS_CLASS, "⁕");
+        setCell(FLAGGED_MINE, SquareView.CLOSED_CSS_CLASS + " " + SquareView.MINE_CSS_CLASS + " "
+                + SquareView.FLAGGED_CSS_CLASS, "⁕");
+        setCell(OPEN_MINE, SquareView.OPEN_CSS_CLASS + " " + SquareView.MINE_CSS_CLASS, "⁕");
+    }
+
+    private static void setCell(int code, String cssClass, String text) {
+        CELL_STARTS[code] = "<td class=\"square " + cssClass + "\"><button";
+        CELL_ENDS[code] = ">" + text + "</button></td>";
+    }
+
     private final Game game;
+    private final State state;
+    private final int moves;
+    private final int width;
 
+    /** The display code of each square, in the order of their indexes */
+    private final byte[] squares;
+
+    /**
+     * Takes a snapshot of the state of the given game, so that the view stays
+     * consistent even if moves are made on the game while it is rendered.
+     */
     public GameView(Game game) {
         this.game = game;
+        synchronized (game) {
+            Minefield minefield = game.getMinefield();
+            this.state = stateOf(game);
+            this.moves = game.getMoves();
+            this.width = minefield.getWidth();
+            this.squares = new byte[minefield.size()];
+            boolean lost = state == State.LOST;
+            for (int index = 0; index < squares.length; index++) {
+                squares[index] = (byte) displayCodeOf(minefield, index, lost);
+            }
+        }
     }
 
     public String getCssClass() {
-        return resolveState().cssClass;
+        return state.cssClass;
     }
 
     public String getStatusText() {
-        return resolveState().message;
+        return state.message;
+    }
+
+    public State getState() {
+        return state;
     }
 
-    private State resolveState() {
+    /**
+     * @return the state of the given game
+     */
+    public static State stateOf(Game game) {
         if (game.isWon()) {
             return State.WON;
         } else if (game.isLost()) {
@@ -46,31 +110,110 @@ public class GameView {
         }
     }
 
-    public List<List<SquareView>> getRows() {
-        return generateRows();
-    }
-
     public int getMoves() {
-        return game.getMoves();
+        return moves;
     }
 
     /**
-     * Generates an easily navigable list of lists of {@link SquareView} objects.
-     * The outer list contains rows, and each inner list contains the squares
-     * for that row.
+     * @return the seed the mines of the game were placed with, or null if the
+     *         game has no seed
      */
-    private List<List<SquareView>> generateRows() {
+    public Long getSeed() {
+        OptionalLong seed = game.getSeed();
+        return seed.isPresent() ? Long.valueOf(seed.getAsLong()) : null;
+    }
 
-        final List<List<SquareView>> rows = new ArrayList<List<SquareView>>();
+    /**
+     * Renders the squares of each row as table cells for a board that is a
+     * single form. A square is played with a button whose value is the first
+     * letter of the move followed by the index of the square, as read by
+     * {@link #moveOf(String, Minefield)}. The cells are put together from
+     * precomputed strings, so the template evaluates one expression per row
+     * instead of several per square.
+     *
+     * Each row is rendered only when the iteration reaches it, in a buffer
+     * that is reused for every row of the iteration, so the rows of the board
+     * are not all held in memory by the view.
+     *
+     * @param mode the move made by clicking a closed square
+     * @return the table cells of each row
+     */
+    public Iterable<String> getBoardRows(Move.Type mode) {
+        final boolean over = state != State.ON;
+        final char modeLetter = mode.name().charAt(0);
+
+        return () -> new Iterator<String>() {
+            private final StringBuilder buffer = new StringBuilder(width * 64);
+            private int first = 0;
+
+            @Override
+            public boolean hasNext() {
+                return first < squares.length;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                buffer.setLength(0);
+                for (int index = first; index < first + width; index++) {
+                    int code = squares[index];
+                    buffer.append(CELL_STARTS[code]);
+                    if (over || code == 0 || code > FLAGGED) {
+                        buffer.append(" disabled=\"disabled\"");
+                    } else {
+                        char move = code < CLOSED ? 'C' : modeLetter;
+                        buffer.append(" name=\"square\" value=\"").append(move).append(index).append('"');
+                    }
+                    buffer.append(CELL_ENDS[code]);
+                }
+                first += width;
+                return buffer.toString();
+            }
+        };
+    }
 
-        for (int i=0; i<game.getMinefield().getHeight(); i++) {
-            rows.add(i, new ArrayList<SquareView>());
+    private static int displayCodeOf(Minefield minefield, int index, boolean lost) {
+        if (lost && minefield.isMine(index)) {
+            return minefield.isOpen(index) ? OPEN_MINE : minefield.isFlagged(index) ? FLAGGED_MINE : MINE;
+        } else if (minefield.isFlagged(index)) {
+            return FLAGGED;
+        } else if (!minefield.isOpen(index)) {
+            return CLOSED;
+        } else {
+            return minefield.getNeighborMineCount(index);
         }
+    }
 
-        // Add each square from the minefield to its corresponding list of squares
-        game.getMinefield().getSquares().stream().forEach(s -> {
-            rows.get(s.getRow()).add(new SquareView(s, game));
-        });
-        return rows;
+    /**
+     * Reads the move of a button on the board rendered by
+     * {@link #getBoardRows(Move.Type)}.
+     *
+     * @return the move, or null if the value is not a move on a square of the
+     *         given minefield
+     */
+    public static Move moveOf(String value, Minefield minefield) {
+        if (value == null || value.length() < 2) {
+            return null;
+        }
+        Move.Type type = null;
+        for (Move.Type candidate : Move.Type.values()) {
+            if (candidate.name().charAt(0) == value.charAt(0)) {
+                type = candidate;
+            }
+        }
+        int index = 0;
+        for (int i = 1; i < value.length() && type != null; i++) {
+            char digit = value.charAt(i);
+            if (digit < '0' || digit > '9' || index >= minefield.size()) {
+                return null;
+            }
+            index = index * 10 + (digit - '0');
+        }
+        if (type == null || index >= minefield.size()) {
+            return null;
+        }
+        return new Move(type, index / minefield.getWidth(), index % minefield.getWidth());
     }
 }
@@ -1,56 +1,74 @@
 package com.havulinna.minesweeper.view;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import com.havulinna.minesweeper.model.Game;
-import com.havulinna.minesweeper.model.Square;
+import com.havulinna.minesweeper.model.EndlessGame;
+import com.havulinna.minesweeper.model.EndlessMinefield;
 
 public class SquareView {
 
     private static final String EMPTY_SYMBOL = " ";
     private static final String FLAG_SYMBOL = "?";
     private static final String MINE_SYMBOL = "⁕";
+    private static final String[] NUMBERS = { "0", "1", "2", "3", "4", "5", "6", "7", "8" };
 
     protected static final String OPEN_CSS_CLASS = "open";
     protected static final String CLOSED_CSS_CLASS = "closed";
     protected static final String MINE_CSS_CLASS = "mine";
     protected static final String FLAGGED_CSS_CLASS = "flagged";
 
-    private Square square;
-    private Game game;
+    /** The CSS classes of each combination of open, shown mine and flagged squares */
+    private static final String[] CSS_CLASSES = new String[8];
 
-    public SquareView(Square square, Game game) {
-        this.square = square;
-        this.game = game;
+    static {
+        for (int bits = 0; bits < CSS_CLASSES.length; bits++) {
+            String classes = (bits & 1) != 0 ? OPEN_CSS_CLASS : CLOSED_CSS_CLASS;
+            if ((bits & 2) != 0) {
+                classes += " " + MINE_CSS_CLASS;
+            }
+            if ((bits & 4) != 0) {
+                classes += " " + FLAGGED_CSS_CLASS;
+            }
+            CSS_CLASSES[bits] = classes;
+        }
+    }
+
+    private final int row;
+    private final int col;
+    private final boolean open;
+    private final boolean mine;
+    private final boolean flagged;
+    private final int neighborMines;
+    private final boolean gameLost;
+
+    /**
+     * Constructs a view to the square in the given coordinates of an endless
+     * game. The chunk of the square is derived if it is not in memory. An
+     * endless game cannot be won, so it is over only once it is lost.
+     */
+    public SquareView(EndlessGame game, int row, int col) {
+        EndlessMinefield minefield = game.getMinefield();
+        this.row = row;
+        this.col = col;
+        this.open = minefield.isOpen(row, col);
+        this.mine = minefield.isMine(row, col);
+        this.flagged = minefield.isFlagged(row, col);
+        this.neighborMines = minefield.getNeighborMineCount(row, col);
+        this.gameLost = game.isLost();
     }
 
     public int getRow() {
-        return square.getRow();
+        return row;
     }
 
     public int getCol() {
-        return square.getCol();
+        return col;
     }
 
     public boolean isDisabled() {
-        return square.isOpen() || game.isOver();
+        return open || gameLost;
     }
 
     public String getCssClass() {
-        List<String> classes = new ArrayList<String>();
-
-        classes.add(square.isOpen() ? OPEN_CSS_CLASS : CLOSED_CSS_CLASS);
-
-        if (game.isLost() && square.isMine()) {
-            classes.add(MINE_CSS_CLASS);
-        }
-
-        if (square.isFlagged()) {
-            classes.add(FLAGGED_CSS_CLASS);
-        }
-
-        return String.join(" ", classes);
+        return CSS_CLASSES[(open ? 1 : 0) | (gameLost && mine ? 2 : 0) | (flagged ? 4 : 0)];
     }
 
     /**
@@ -62,14 +80,13 @@ public class SquareView {
      * @return single character String to show in the UI
      */
     public String getText() {
-        if (game.isLost() && square.isMine()) {
+        if (gameLost && mine) {
             return MINE_SYMBOL;
-        } else if (square.isFlagged()) {
+        } else if (flagged) {
             return FLAG_SYMBOL;
-        } else if (square.isOpen()) {
-            int minesInNeighbors = game.getMinefield().getNeighbors(square).select(s -> s.isMine()).size();
-            if (minesInNeighbors > 0) {
-                return String.valueOf(minesInNeighbors);
+        } else if (open) {
+            if (neighborMines > 0) {
+                return NUMBERS[neighborMines];
             } else {
                 return EMPTY_SYMBOL;
             }
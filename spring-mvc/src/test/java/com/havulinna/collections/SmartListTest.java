@@ -3,9 +3,11 @@ package com.havulinna.collections;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -149,6 +151,111 @@ public class SmartListTest {
         assertFalse(largerThanMaximum.isPresent());
     }
 
+    @Test
+    public void selectFromFrozenListReturnsAMutableList() {
+        SmartList<Integer> matches = frozenList.select(x -> x.intValue() > 0);
+        matches.add(TWO);
+        assertEquals(Arrays.asList(ONE, TWO), matches);
+    }
+
+    @Test
+    public void countReturnsTheNumberOfMatchingElements() {
+        SmartList<String> strings = new SmartList<String>("y", "ABC", "z", "DEF", "x");
+
+        assertEquals(3, strings.count(x -> x.length() == 1));
+        assertEquals(0, strings.count(x -> x.isEmpty()));
+    }
+
+    @Test
+    public void anyMatchAndAllMatchTestTheElements() {
+        assertTrue(frozenList.anyMatch(x -> x.intValue() == 1));
+        assertFalse(frozenList.anyMatch(x -> x.intValue() > 1));
+        assertTrue(frozenList.allMatch(x -> x.intValue() < 2));
+        assertFalse(frozenList.allMatch(x -> x.intValue() == 0));
+        assertTrue(new SmartList<Integer>().allMatch(x -> false));
+    }
+
+    @Test
+    public void forEachMatchingPassesMatchingElementsInOrder() {
+        SmartList<String> strings = new SmartList<String>("y", "ABC", "z", "DEF", "x");
+        StringBuilder matches = new StringBuilder();
+
+        strings.forEachMatching(x -> x.length() == 1, x -> matches.append(x));
+        assertEquals("yzx", matches.toString());
+    }
+
+    @Test
+    public void viewShowsChangesToTheListButCannotBeModified() {
+        SmartList<Integer> view = list.view();
+        list.add(TWO);
+
+        assertEquals(Arrays.asList(ZERO, ONE, TWO), view);
+        verifyUnsupportedOperationException(() -> view.add(TWO));
+        verifyUnsupportedOperationException(() -> view.remove(0));
+    }
+
+    @Test
+    public void frozenListIsItsOwnView() {
+        assertSame(frozenList, frozenList.view());
+    }
+
+    @Test
+    public void viewOfAListIsBackedByIt() {
+        List<Integer> values = new ArrayList<Integer>(Arrays.asList(ZERO));
+        SmartList<Integer> view = SmartList.viewOf(values);
+        values.add(ONE);
+
+        assertEquals(Arrays.asList(ZERO, ONE), view);
+        verifyUnsupportedOperationException(() -> view.add(TWO));
+        verifyUnsupportedOperationException(() -> view.freeze().set(0, TWO));
+    }
+
+    @Test
+    public void viewIsItsOwnView() {
+        SmartList<Integer> view = list.view();
+
+        assertSame(view, view.view());
+    }
+
+    @Test
+    public void freezingAViewDetachesItFromTheList() {
+        List<Integer> values = new ArrayList<Integer>(Arrays.asList(ZERO));
+        SmartList<Integer> frozen = SmartList.viewOf(values).freeze();
+        values.add(ONE);
+
+        assertEquals(Arrays.asList(ZERO), frozen);
+        assertSame(frozen, frozen.view());
+    }
+
+    @Test
+    public void plusLeavesTheOriginalListUnchanged() {
+        SmartList<Integer> longer = frozenList.plus(TWO);
+
+        assertEquals(Arrays.asList(ZERO, ONE, TWO), longer);
+        assertEquals(Arrays.asList(ZERO, ONE), frozenList);
+        verifyUnsupportedOperationException(() -> longer.add(TWO));
+        verifyIllegalArgumentException(() -> longer.plus(null));
+    }
+
+    @Test
+    public void listsBuiltWithPlusKeepTheirOwnElements() {
+        SmartList<Integer> empty = new SmartList<Integer>().freeze();
+        SmartList<Integer> tenElements = empty;
+        for (int i = 0; i < 10; i++) {
+            tenElements = tenElements.plus(Integer.valueOf(i));
+        }
+        SmartList<Integer> branch = tenElements.plus(ZERO);
+        SmartList<Integer> otherBranch = tenElements.plus(ONE);
+        SmartList<Integer> earlierBranch = empty.plus(TWO);
+
+        assertEquals(IntStream.range(0, 10).boxed().collect(Collectors.toList()), tenElements);
+        assertEquals(ZERO, branch.get(10));
+        assertEquals(ONE, otherBranch.get(10));
+        assertEquals(11, branch.size());
+        assertEquals(Arrays.asList(TWO), earlierBranch);
+        assertTrue(empty.isEmpty());
+    }
+
     @Test
     public void shuffleRandomisesTheOrderOfTheCalledList() {
         List<Integer> input = IntStream.range(0, 100).boxed().collect(Collectors.toList());
@@ -171,6 +278,42 @@ public class SmartListTest {
         verifyUnsupportedOperationException(() -> frozenList.shuffle());
     }
 
+    @Test
+    public void parallelQueriesMatchTheSequentialOnes() {
+        assertTrue(ParallelRanges.isParallel(100000, 0));
+        SmartList<Integer> numbers = new SmartList<Integer>(IntStream.range(0, 100000).boxed()
+                .collect(Collectors.toList())).freeze();
+
+        assertEquals(numbers.select(x -> x % 3 == 0), numbers.parallelSelect(x -> x % 3 == 0, 0));
+        assertEquals(numbers.count(x -> x % 7 == 0), numbers.parallelCount(x -> x % 7 == 0, 0));
+        assertTrue(numbers.parallelAnyMatch(x -> x.intValue() == 99999, 0));
+        assertFalse(numbers.parallelAnyMatch(x -> x.intValue() < 0, 0));
+        assertEquals(Arrays.asList(ZERO), numbers.parallelSelect(x -> x.intValue() == 0));
+    }
+
+    @Test
+    public void parallelSelectReturnsAMutableList() {
+        SmartList<Integer> matches = frozenList.parallelSelect(x -> x.intValue() > 0, 0);
+        matches.add(TWO);
+        assertEquals(Arrays.asList(ONE, TWO), matches);
+    }
+
+    @Test
+    public void parallelShuffleKeepsEveryElement() {
+        List<Integer> input = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+
+        SmartList<Integer> shuffled = new SmartList<Integer>(input).parallelShuffle(0);
+
+        assertNotEquals(input, shuffled);
+        assertEquals(input, shuffled.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void parallelShufflingFrozenListIsNotSupported() {
+        verifyUnsupportedOperationException(() -> frozenList.parallelShuffle(0));
+        verifyUnsupportedOperationException(() -> SmartList.viewOf(Arrays.asList(ONE, TWO)).parallelShuffle());
+    }
+
     /**
      * Verifies that the given callback throws UnsupportedOperationException. If not,
      * throws AssertionError.
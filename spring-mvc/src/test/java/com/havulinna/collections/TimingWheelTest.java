@@ -0,0 +1,112 @@
+package com.havulinna.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    private final TimingWheel<String> wheel = new TimingWheel<String>(10, 100, 0);
+    private final List<String> expired = new ArrayList<String>();
+
+    @Test
+    public void itemsExpireWhenTheirDeadlineHasPassed() {
+        wheel.schedule("first", 250);
+        wheel.schedule("second", 520);
+
+        wheel.advance(200, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(300, expired::add);
+        assertEquals(Arrays.asList("first"), expired);
+
+        wheel.advance(600, expired::add);
+        assertEquals(Arrays.asList("first", "second"), expired);
+    }
+
+    @Test
+    public void deadlinesBeyondOneRevolutionWaitForTheirOwnRevolution() {
+        wheel.schedule("later", 1250);
+
+        wheel.advance(1000, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(1300, expired::add);
+        assertEquals(Arrays.asList("later"), expired);
+    }
+
+    @Test
+    public void deadlinesInThePastExpireOnTheNextTick() {
+        wheel.advance(500, expired::add);
+        wheel.schedule("late", 100);
+
+        wheel.advance(600, expired::add);
+        assertEquals(Arrays.asList("late"), expired);
+    }
+
+    @Test
+    public void expiredItemsCanBeScheduledAgain() {
+        wheel.schedule("again", 150);
+
+        wheel.advance(200, item -> wheel.schedule(item, 450));
+        wheel.advance(500, expired::add);
+
+        assertEquals(Arrays.asList("again"), expired);
+    }
+
+    @Test
+    public void pollEarliestReturnsItemsInTheOrderOfTheirDeadlines() {
+        wheel.schedule("third", 700);
+        wheel.schedule("first", 150);
+        wheel.schedule("second", 420);
+
+        assertEquals("first", wheel.pollEarliest());
+        assertEquals("second", wheel.pollEarliest());
+        assertEquals("third", wheel.pollEarliest());
+        assertNull(wheel.pollEarliest());
+    }
+
+    @Test
+    public void itemsScheduledWhileTheWheelAdvancesAreNotLeftInPassedSlots() throws InterruptedException {
+        CountDownLatch advancing = new CountDownLatch(1);
+        CountDownLatch scheduled = new CountDownLatch(1);
+        Queue<String> expiredItems = new ConcurrentLinkedQueue<String>();
+        wheel.schedule("first", 250);
+
+        Thread advancer = new Thread(() -> wheel.advance(500, item -> {
+            expiredItems.add(item);
+            advancing.countDown();
+            awaitQuietly(scheduled);
+        }));
+        advancer.start();
+        advancing.await();
+        wheel.schedule("late", 100);
+        scheduled.countDown();
+        advancer.join();
+
+        wheel.advance(600, expiredItems::add);
+        assertEquals(Arrays.asList("first", "late"), new ArrayList<String>(expiredItems));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void wheelMustHaveSlots() {
+        new TimingWheel<String>(0, 100, 0);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.havulinna.minesweeper.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.view.RedirectView;
+
+import com.havulinna.minesweeper.exception.BadRequestException;
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.EndlessGame;
+import com.havulinna.minesweeper.model.EndlessMinefield;
+import com.havulinna.minesweeper.service.EndlessGameRepository;
+
+public class EndlessGameControllerTest {
+
+    private static final String GENERATED_GAME_ID = "abc123";
+
+    private EndlessGameRepository mockRepository = mock(EndlessGameRepository.class);
+    private EndlessGameController controller = new EndlessGameController(mockRepository);
+    private EndlessGame mockGame = mock(EndlessGame.class);
+
+    @Before
+    public void setUp() throws NotFoundException, BadRequestException {
+        when(mockRepository.store(any(EndlessGame.class))).thenReturn(GENERATED_GAME_ID);
+        when(mockRepository.getGameById(GENERATED_GAME_ID)).thenReturn(mockGame);
+    }
+
+    @Test
+    public void newGameRedirectsUserToTheCreatedGame() {
+        RedirectView response = controller.startNewGame();
+
+        verify(mockRepository).store(any(EndlessGame.class));
+        assertEquals("/endless/" + GENERATED_GAME_ID, response.getUrl());
+    }
+
+    @Test
+    public void showGameReturnsEndlessTemplateWithGameView() throws NotFoundException, BadRequestException {
+        ModelAndView response = controller.showGame(GENERATED_GAME_ID, 0, 0);
+
+        assertEquals("endless", response.getViewName());
+        assertTrue(response.getModel().containsKey("gameView"));
+    }
+
+    @Test
+    public void openSquareRedirectsBackToTheSameWindow() throws NotFoundException, BadRequestException {
+        RedirectView response = controller.openSquare(GENERATED_GAME_ID, 5, 6, 10, -20);
+
+        verify(mockGame).openSquare(5, 6);
+        assertEquals("/endless/" + GENERATED_GAME_ID + "?row=10&col=-20", response.getUrl());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void showGameRejectsCentersBeyondTheMinefield() throws NotFoundException, BadRequestException {
+        controller.showGame(GENERATED_GAME_ID, EndlessMinefield.MAX_COORDINATE, 0);
+    }
+
+    @Test
+    public void openSquareRejectsSquaresBeyondTheMinefield() throws NotFoundException {
+        try {
+            controller.openSquare(GENERATED_GAME_ID, 0, Integer.MIN_VALUE, 0, 0);
+        } catch (BadRequestException e) {
+            verifyZeroInteractions(mockGame);
+            return;
+        }
+        throw new AssertionError("Expected the square to be rejected");
+    }
+}
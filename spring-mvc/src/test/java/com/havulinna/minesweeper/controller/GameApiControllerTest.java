@@ -0,0 +1,192 @@
+package com.havulinna.minesweeper.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.havulinna.minesweeper.controller.request.MoveRequest;
+import com.havulinna.minesweeper.controller.response.BatchResponse;
+import com.havulinna.minesweeper.controller.response.CellResponse;
+import com.havulinna.minesweeper.controller.response.GameResponse;
+import com.havulinna.minesweeper.controller.response.MoveResponse;
+import com.havulinna.minesweeper.exception.BadRequestException;
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.Difficulty;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Move;
+import com.havulinna.minesweeper.service.GameFactory;
+import com.havulinna.minesweeper.service.GameProperties;
+import com.havulinna.minesweeper.service.GameRepository;
+import com.havulinna.minesweeper.view.GameView;
+
+public class GameApiControllerTest {
+
+    private static final String GAME_ID = "abc123";
+
+    private GameRepository mockRepository = mock(GameRepository.class);
+    private GameProperties properties = new GameProperties();
+    private GameApiController controller = new GameApiController(mockRepository,
+            new GameFactory(properties), properties);
+    private Game game = new Game(3, 4, 0);
+
+    @Before
+    public void setUp() throws NotFoundException {
+        // . . . M
+        // . . . .
+        // . . . .
+        game.getMinefield().getSquare(0, 3).setMine();
+        when(mockRepository.store(any(Game.class))).thenReturn(GAME_ID);
+        when(mockRepository.getGameById(GAME_ID)).thenReturn(game);
+        when(mockRepository.getGameById("missing")).thenThrow(new NotFoundException("No game"));
+    }
+
+    @Test
+    public void createdGameIsReturnedWithItsId() throws BadRequestException {
+        GameResponse response = controller.createCustomGame(5, 6, 7, Long.valueOf(42), false);
+
+        assertEquals(GAME_ID, response.getId());
+        assertEquals(5, response.getRows());
+        assertEquals(6, response.getCols());
+        assertEquals(7, response.getMines());
+        assertEquals(Long.valueOf(42), response.getSeed());
+        assertEquals(GameView.State.ON, response.getState());
+        assertEquals(Arrays.asList("......", "......", "......", "......", "......"), response.getBoard());
+    }
+
+    @Test
+    public void gamesOfPredefinedDifficultiesAreCreated() {
+        GameResponse response = controller.createGame(Difficulty.EASY, null, true);
+
+        assertEquals(6, response.getMines());
+        assertEquals(0, response.getMoves());
+    }
+
+    @Test
+    public void openingReturnsOnlyTheOpenedSquares() throws Exception {
+        MoveResponse response = controller.openSquare(GAME_ID, 2, 0);
+
+        assertEquals(1, response.getMoves());
+        assertEquals(GameView.State.WON, response.getState());
+        assertEquals(11, response.getCells().size());
+        CellResponse first = response.getCells().get(0);
+        assertEquals(2, first.getRow());
+        assertEquals(0, first.getCol());
+        assertTrue(first.isOpen());
+        assertEquals(Boolean.FALSE, first.getMine());
+        assertEquals(Integer.valueOf(0), first.getNeighborMines());
+    }
+
+    @Test
+    public void flaggingReturnsTheFlaggedSquareWithoutItsContents() throws Exception {
+        MoveResponse response = controller.toggleFlag(GAME_ID, 0, 3);
+
+        assertEquals(0, response.getMoves());
+        assertEquals(1, response.getCells().size());
+        CellResponse cell = response.getCells().get(0);
+        assertTrue(cell.isFlagged());
+        assertFalse(cell.isOpen());
+        assertNull(cell.getMine());
+        assertNull(cell.getNeighborMines());
+    }
+
+    @Test
+    public void movesThatAreNotAllowedChangeNothing() throws Exception {
+        controller.toggleFlag(GAME_ID, 0, 3);
+        MoveResponse response = controller.openSquare(GAME_ID, 0, 3);
+
+        assertEquals(0, response.getMoves());
+        assertTrue(response.getCells().isEmpty());
+    }
+
+    @Test
+    public void boardShowsOpenSquaresFlagsAndMinesOfALostGame() throws Exception {
+        controller.toggleFlag(GAME_ID, 2, 3);
+        controller.openSquare(GAME_ID, 1, 3);
+        assertEquals(Arrays.asList("....", "...1", "...F"), controller.getGame(GAME_ID).getBoard());
+
+        controller.openSquare(GAME_ID, 0, 3);
+        GameResponse response = controller.getGame(GAME_ID);
+        assertEquals(GameView.State.LOST, response.getState());
+        assertEquals(Arrays.asList("...*", "...1", "...F"), response.getBoard());
+    }
+
+    @Test
+    public void chordReturnsTheOpenedNeighbors() throws Exception {
+        controller.openSquare(GAME_ID, 1, 3);
+        controller.toggleFlag(GAME_ID, 0, 3);
+        MoveResponse response = controller.chord(GAME_ID, 1, 3);
+
+        assertEquals(2, response.getMoves());
+        assertEquals(GameView.State.WON, response.getState());
+        assertEquals(10, response.getCells().size());
+    }
+
+    @Test
+    public void batchReturnsEachChangedSquareOnce() throws Exception {
+        BatchResponse response = controller.applyMoves(GAME_ID, Arrays.asList(
+                new MoveRequest(Move.Type.FLAG, 2, 3),
+                new MoveRequest(Move.Type.FLAG, 2, 3),
+                new MoveRequest(Move.Type.OPEN, 1, 3),
+                new MoveRequest(Move.Type.FLAG, 1, 3)));
+
+        assertEquals(4, response.getApplied());
+        assertEquals(1, response.getMoves());
+        assertEquals(2, response.getCells().size());
+        assertEquals(1, response.getCells().get(0).getRow());
+        assertEquals(Integer.valueOf(1), response.getCells().get(0).getNeighborMines());
+        assertEquals(2, response.getCells().get(1).getRow());
+        assertFalse(response.getCells().get(1).isFlagged());
+    }
+
+    @Test
+    public void batchStopsWhenTheGameIsOver() throws Exception {
+        BatchResponse response = controller.applyMoves(GAME_ID, Arrays.asList(
+                new MoveRequest(Move.Type.OPEN, 0, 3),
+                new MoveRequest(Move.Type.OPEN, 2, 0)));
+
+        assertEquals(1, response.getApplied());
+        assertEquals(GameView.State.LOST, response.getState());
+        assertEquals(1, response.getCells().size());
+    }
+
+    @Test
+    public void batchWithAnInvalidMoveIsRejectedAsAWhole() throws Exception {
+        try {
+            controller.applyMoves(GAME_ID, Arrays.asList(
+                    new MoveRequest(Move.Type.OPEN, 2, 0),
+                    new MoveRequest(Move.Type.OPEN, 5, 0)));
+        } catch (BadRequestException expected) {
+            assertEquals(0, game.getMoves());
+            return;
+        }
+        fail();
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void batchesOverTheLimitAreRejected() throws Exception {
+        properties.setMaxBatchMoves(1);
+        controller.applyMoves(GAME_ID, Arrays.asList(
+                new MoveRequest(Move.Type.OPEN, 2, 0),
+                new MoveRequest(Move.Type.OPEN, 2, 1)));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void squaresOutsideTheBoardAreRejected() throws Exception {
+        controller.openSquare(GAME_ID, 3, 0);
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void missingGamesAreNotFound() throws Exception {
+        controller.getGame("missing");
+    }
+}
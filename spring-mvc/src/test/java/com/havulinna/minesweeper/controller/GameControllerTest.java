@@ -1,7 +1,9 @@
 package com.havulinna.minesweeper.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
@@ -10,14 +12,24 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.view.RedirectView;
 
+import com.havulinna.minesweeper.exception.BadRequestException;
 import com.havulinna.minesweeper.exception.NotFoundException;
 import com.havulinna.minesweeper.model.Difficulty;
 import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
+import com.havulinna.minesweeper.model.Minefield.Layer;
+import com.havulinna.minesweeper.model.Move;
+import com.havulinna.minesweeper.service.GameFactory;
+import com.havulinna.minesweeper.service.GameProperties;
 import com.havulinna.minesweeper.service.GameRepository;
 
 
@@ -26,51 +38,189 @@ public class GameControllerTest {
     private static final String GENERATED_GAME_ID = "abc123";
 
     private GameRepository mockRepository = mock(GameRepository.class);
-    private GameController controller = new GameController(mockRepository);
+    private GameController controller = new GameController(mockRepository, new GameFactory(new GameProperties()));
     private Game mockGame = mock(Game.class);
+    private WebRequest mockRequest = mock(WebRequest.class);
 
     @Before
     public void setUp() throws NotFoundException {
         when(mockRepository.store(any(Game.class))).thenReturn(GENERATED_GAME_ID);
         when(mockRepository.getGameById(GENERATED_GAME_ID)).thenReturn(mockGame);
+        when(mockGame.getMinefield()).thenReturn(new Minefield(5, 5));
     }
 
     @Test
     public void newGameHandlerStoresANewGameInRepository() throws Exception {
-        controller.startNewGame(Difficulty.EASY);
+        controller.startNewGame(Difficulty.EASY, null, false);
         verify(mockRepository).store(any(Game.class));
     }
 
     @Test
     public void newGameRedirectsUserToTheCreatedGame() {
-        RedirectView response = controller.startNewGame(Difficulty.FAIR);
+        RedirectView response = controller.startNewGame(Difficulty.FAIR, null, false);
+
+        assertEquals("/game/" + GENERATED_GAME_ID, response.getUrl());
+    }
+
+    @Test
+    public void gamesWithTheSameSeedHaveTheSameMines() throws BadRequestException {
+        controller.startNewGame(Difficulty.HARD, Long.valueOf(42), false);
+        controller.startCustomGame(30, 50, 100, Long.valueOf(42), false);
+        controller.startNewGame(Difficulty.HARD, Long.valueOf(42), false);
+        controller.startCustomGame(30, 50, 100, Long.valueOf(42), false);
+
+        ArgumentCaptor<Game> stored = ArgumentCaptor.forClass(Game.class);
+        verify(mockRepository, times(4)).store(stored.capture());
+        List<Game> games = stored.getAllValues();
+        assertEquals(42L, games.get(0).getSeed().getAsLong());
+        assertSameMines(games.get(0), games.get(2));
+        assertSameMines(games.get(1), games.get(3));
+    }
+
+    private static void assertSameMines(Game expected, Game actual) {
+        Minefield minefield = expected.getMinefield();
+        for (int word = 0; word < minefield.getWordCount(); word++) {
+            assertEquals(minefield.getWord(Layer.MINES, word), actual.getMinefield().getWord(Layer.MINES, word));
+        }
+    }
+
+    @Test
+    public void safeGamesDeferTheirMinesUntilTheFirstMove() throws BadRequestException {
+        controller.startNewGame(Difficulty.EASY, null, true);
+        controller.startCustomGame(30, 50, 100, Long.valueOf(42), true);
+
+        ArgumentCaptor<Game> stored = ArgumentCaptor.forClass(Game.class);
+        verify(mockRepository, times(2)).store(stored.capture());
+        for (Game game : stored.getAllValues()) {
+            assertTrue(game.isMinePlacementDeferred());
+            assertEquals(0, game.getMinefield().getMineCount());
+        }
+        assertEquals(100, stored.getAllValues().get(1).getMineCount());
+    }
 
+    @Test
+    public void customGameHasTheRequestedSize() throws BadRequestException {
+        RedirectView response = controller.startCustomGame(30, 50, 100, null, false);
+
+        ArgumentCaptor<Game> stored = ArgumentCaptor.forClass(Game.class);
+        verify(mockRepository).store(stored.capture());
+        assertEquals(30, stored.getValue().getMinefield().getHeight());
+        assertEquals(50, stored.getValue().getMinefield().getWidth());
+        assertEquals(100, stored.getValue().getMinefield().getMineCount());
         assertEquals("/game/" + GENERATED_GAME_ID, response.getUrl());
     }
 
+    @Test(expected = BadRequestException.class)
+    public void invalidCustomGameIsNotStored() throws BadRequestException {
+        try {
+            controller.startCustomGame(0, 50, 100, null, false);
+        } finally {
+            verify(mockRepository, times(0)).store(any(Game.class));
+        }
+    }
+
     @Test
     public void showGameReturnsGameTemplateWithGameViewObject() throws NotFoundException {
-        ModelAndView response = controller.showGame(GENERATED_GAME_ID);
+        ModelAndView response = controller.showGame(GENERATED_GAME_ID, Move.Type.OPEN, mockRequest);
 
         assertEquals("game", response.getViewName());
         assertTrue(response.getModel().containsKey("gameView"));
     }
 
     @Test
-    public void openSquareHandlerOpensTheRequestedSquareInGameWhenGameIsNotOver() throws NotFoundException {
+    public void showGameKeepsTheFlagModeButNotChords() throws NotFoundException {
+        assertEquals(Move.Type.FLAG, controller.showGame(GENERATED_GAME_ID, Move.Type.FLAG, mockRequest).getModel().get("mode"));
+        assertEquals(Move.Type.OPEN, controller.showGame(GENERATED_GAME_ID, Move.Type.CHORD, mockRequest).getModel().get("mode"));
+    }
+
+    @Test
+    public void showGameRendersNothingWhenTheClientHasTheCurrentVersion() throws NotFoundException {
+        when(mockGame.getVersion()).thenReturn(0xabcL);
+        when(mockRequest.checkNotModified("\"abc\"")).thenReturn(true);
+
+        assertNull(controller.showGame(GENERATED_GAME_ID, Move.Type.OPEN, mockRequest));
+        verify(mockGame, times(0)).getMinefield();
+    }
+
+    @Test
+    public void movesOfEachTypeAreAppliedToTheGame() throws Exception {
+        controller.makeMove(GENERATED_GAME_ID, 1, 2, Move.Type.FLAG, Move.Type.FLAG);
+        controller.makeMove(GENERATED_GAME_ID, 3, 4, Move.Type.CHORD, Move.Type.OPEN);
+
+        verify(mockGame).apply(Move.flag(1, 2));
+        verify(mockGame).apply(Move.chord(3, 4));
+    }
+
+    @Test
+    public void movesRedirectBackToTheSameMode() throws Exception {
+        RedirectView flagMode = controller.makeMove(GENERATED_GAME_ID, 1, 2, Move.Type.CHORD, Move.Type.FLAG);
+        RedirectView openMode = controller.makeMove(GENERATED_GAME_ID, 1, 2, Move.Type.OPEN, Move.Type.OPEN);
+
+        assertEquals("/game/" + GENERATED_GAME_ID + "?mode=FLAG", flagMode.getUrl());
+        assertEquals("/game/" + GENERATED_GAME_ID, openMode.getUrl());
+    }
+
+    @Test
+    public void boardButtonsNameTheMoveAndTheSquare() throws Exception {
+        when(mockGame.getMinefield()).thenReturn(new Minefield(3, 4));
+
+        RedirectView response = controller.playSquare(GENERATED_GAME_ID, "C6", Move.Type.FLAG);
+
+        verify(mockGame).apply(Move.chord(1, 2));
+        assertEquals("/game/" + GENERATED_GAME_ID + "?mode=FLAG", response.getUrl());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void boardButtonsOutsideTheMinefieldAreRejected() throws Exception {
+        when(mockGame.getMinefield()).thenReturn(new Minefield(3, 4));
+        controller.playSquare(GENERATED_GAME_ID, "O12", Move.Type.OPEN);
+    }
+
+    @Test
+    public void movesAreNotAppliedWhenGameHasEnded() throws Exception {
+        when(mockGame.isOver()).thenReturn(Boolean.TRUE);
+        controller.makeMove(GENERATED_GAME_ID, 1, 2, Move.Type.FLAG, Move.Type.FLAG);
+        verify(mockGame, times(0)).apply(any(Move.class));
+    }
+
+    @Test
+    public void openSquareHandlerOpensTheRequestedSquareInGameWhenGameIsNotOver() throws Exception {
         controller.openSquare(GENERATED_GAME_ID, 1, 2);
         verify(mockGame).openSquare(eq(1), eq(2));
     }
 
     @Test
-    public void squaresCannotBeOpenedWhenGameHasEnded() throws NotFoundException {
+    public void squaresCannotBeOpenedWhenGameHasEnded() throws Exception {
         when(mockGame.isOver()).thenReturn(Boolean.TRUE);
         controller.openSquare(GENERATED_GAME_ID, 1, 2);
         verify(mockGame, times(0)).openSquare(anyInt(), anyInt());
     }
 
+    @Test(expected = BadRequestException.class)
+    public void squaresBelowTheMinefieldAreRejected() throws Exception {
+        controller.openSquare(GENERATED_GAME_ID, 5, 2);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void squaresLeftOfTheMinefieldAreRejected() throws Exception {
+        controller.openSquare(GENERATED_GAME_ID, 2, -1);
+    }
+
+    @Test
+    public void movesOutsideTheMinefieldAreRejected() throws Exception {
+        int[][] outside = { { -1, 0 }, { 0, 5 }, { 5, 0 }, { 0, Integer.MIN_VALUE } };
+        for (int[] square : outside) {
+            try {
+                controller.makeMove(GENERATED_GAME_ID, square[0], square[1], Move.Type.FLAG, Move.Type.OPEN);
+                fail("Expected square " + square[0] + "," + square[1] + " to be rejected");
+            } catch (BadRequestException expected) {
+            }
+        }
+        verify(mockGame, times(0)).apply(any(Move.class));
+    }
+
     @Test
-    public void openSquareRedirectsTheUserBackToShowGame() throws NotFoundException {
+    public void openSquareRedirectsTheUserBackToShowGame() throws Exception {
         RedirectView response = controller.openSquare(GENERATED_GAME_ID, 1, 2);
 
         assertEquals("/game/" + GENERATED_GAME_ID, response.getUrl());
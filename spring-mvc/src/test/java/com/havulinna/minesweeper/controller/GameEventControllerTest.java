@@ -0,0 +1,95 @@
+package com.havulinna.minesweeper.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.UnsupportedEncodingException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.validation.Validator;
+import org.springframework.web.util.NestedServletException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Move;
+import com.havulinna.minesweeper.service.EventProperties;
+import com.havulinna.minesweeper.service.GameEventBroadcaster;
+import com.havulinna.minesweeper.service.GameRepository;
+
+public class GameEventControllerTest {
+
+    private static final String GAME_ID = "abc123";
+
+    private GameRepository mockRepository = mock(GameRepository.class);
+    private GameEventBroadcaster broadcaster = new GameEventBroadcaster(new EventProperties(), new ObjectMapper());
+    private MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new GameEventController(mockRepository, broadcaster))
+            .setValidator(mock(Validator.class)) // Nothing to validate, and the default one needs JAXB
+            .build();
+    private Game game = new Game(3, 4, 0);
+
+    @Before
+    public void setUp() throws NotFoundException {
+        when(mockRepository.getGameById(GAME_ID)).thenReturn(game);
+    }
+
+    @After
+    public void tearDown() {
+        broadcaster.close();
+    }
+
+    @Test
+    public void streamOpensWithTheWholeGameAndThenDeliversMoves() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/games/" + GAME_ID + "/events"))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = result.getResponse();
+
+        assertTrue(response.getContentType().startsWith("text/event-stream"));
+        assertEquals("UTF-8", response.getCharacterEncoding());
+        awaitContent(response, "event: game\ndata: {\"id\":\"" + GAME_ID + "\"");
+
+        game.apply(Move.flag(1, 2));
+        awaitContent(response, "event: move\ndata: {\"moves\":0");
+        assertEquals(1, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    public void unknownGamesAreNotStreamed() throws Exception {
+        when(mockRepository.getGameById("missing")).thenThrow(new NotFoundException("No game"));
+
+        try {
+            mockMvc.perform(get("/api/games/missing/events"));
+            fail("Expected the missing game to be reported");
+        } catch (NestedServletException e) {
+            assertTrue(e.getCause() instanceof NotFoundException);
+        }
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+
+    /**
+     * Waits for the writer threads of the broadcaster to write the given text.
+     */
+    private static void awaitContent(MockHttpServletResponse response, String expected)
+            throws UnsupportedEncodingException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(response.getContentAsString(), response.getContentAsString().contains(expected));
+    }
+}
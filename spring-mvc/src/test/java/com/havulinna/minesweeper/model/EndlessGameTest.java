@@ -0,0 +1,80 @@
+package com.havulinna.minesweeper.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class EndlessGameTest {
+
+    @Test
+    public void openingTheOriginFloodsTheAreaAroundIt() {
+        EndlessGame game = new EndlessGame(1, 0.2);
+
+        int opened = game.openSquare(0, 0);
+
+        assertTrue(opened >= 9);
+        assertEquals(opened, game.getScore());
+        assertEquals(1, game.getMoves());
+        assertFalse(game.isLost());
+    }
+
+    @Test
+    public void floodFillStopsAtSquaresNextToMines() {
+        EndlessGame game = new EndlessGame(2, 0.2);
+        game.openSquare(0, 0);
+        EndlessMinefield minefield = game.getMinefield();
+
+        // Every open square without mines next to it must have only open neighbors
+        for (int row = -50; row <= 50; row++) {
+            for (int col = -50; col <= 50; col++) {
+                if (minefield.isOpen(row, col) && minefield.getNeighborMineCount(row, col) == 0) {
+                    for (int r = row - 1; r <= row + 1; r++) {
+                        for (int c = col - 1; c <= col + 1; c++) {
+                            assertTrue(minefield.isOpen(r, c));
+                        }
+                    }
+                }
+                assertFalse(minefield.isOpen(row, col) && minefield.isMine(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void openingAMineLosesTheGame() {
+        EndlessGame game = new EndlessGame(3, 0.5);
+        int col = 10;
+        while (!game.getMinefield().isMine(10, col)) {
+            col++;
+        }
+
+        assertEquals(1, game.openSquare(10, col));
+        assertTrue(game.isLost());
+        assertEquals(0, game.openSquare(0, 0));
+    }
+
+    @Test
+    public void flaggedSquaresAreNotOpened() {
+        EndlessGame game = new EndlessGame(4, 0.2);
+        game.toggleFlag(0, 0);
+
+        assertEquals(0, game.openSquare(0, 0));
+        assertEquals(0, game.getMoves());
+    }
+
+    @Test
+    public void memoryGrowsWithTheExploredAreaOnly() {
+        EndlessGame game = new EndlessGame(5, 0.2);
+        game.openSquare(0, 0);
+        game.openSquare(1000000, 1000000);
+
+        assertTrue(game.getMinefield().getModifiedChunkCount() <= 10);
+        assertTrue(game.estimateMemoryUsage() < 1024 * 1024);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void densitiesThatAllowUnboundedFloodsAreRejected() {
+        new EndlessGame(6, 0.05);
+    }
+}
@@ -0,0 +1,139 @@
+package com.havulinna.minesweeper.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class EndlessMinefieldTest {
+
+    @Test
+    public void minesAreDerivedFromTheSeed() {
+        EndlessMinefield first = new EndlessMinefield(42, 0.2);
+        EndlessMinefield second = new EndlessMinefield(42, 0.2);
+
+        for (int row = -100; row < 100; row += 7) {
+            for (int col = -100; col < 100; col += 3) {
+                assertEquals(first.isMine(row, col), second.isMine(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void differentSeedsHaveDifferentMines() {
+        EndlessMinefield first = new EndlessMinefield(1, 0.2);
+        EndlessMinefield second = new EndlessMinefield(2, 0.2);
+
+        int differences = 0;
+        for (int col = 0; col < 1000; col++) {
+            if (first.isMine(10, col) != second.isMine(10, col)) {
+                differences++;
+            }
+        }
+        assertTrue(differences > 100);
+    }
+
+    @Test
+    public void mineDensityIsAsRequested() {
+        EndlessMinefield minefield = new EndlessMinefield(7, 0.25);
+
+        int mines = 0;
+        for (int row = 0; row < 100; row++) {
+            for (int col = 0; col < 100; col++) {
+                mines += minefield.isMine(row, col) ? 1 : 0;
+            }
+        }
+        assertEquals(2500, mines, 200);
+    }
+
+    @Test
+    public void squaresAroundTheOriginHaveNoMines() {
+        EndlessMinefield minefield = new EndlessMinefield(3, 0.9);
+
+        for (int row = -1; row <= 1; row++) {
+            for (int col = -1; col <= 1; col++) {
+                assertFalse(minefield.isMine(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void neighborCountsIncludeMinesInOtherChunks() {
+        EndlessMinefield minefield = new EndlessMinefield(11, 0.3);
+
+        // Squares on both sides of chunk borders, including negative coordinates
+        int[] coordinates = { -33, -32, -31, -1, 0, 31, 32, 63, 64 };
+        for (int row : coordinates) {
+            for (int col : coordinates) {
+                int expected = 0;
+                for (int r = row - 1; r <= row + 1; r++) {
+                    for (int c = col - 1; c <= col + 1; c++) {
+                        if ((r != row || c != col) && minefield.isMine(r, c)) {
+                            expected++;
+                        }
+                    }
+                }
+                assertEquals(expected, minefield.getNeighborMineCount(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void unmodifiedChunksAreDroppedOverTheCacheLimit() {
+        EndlessMinefield minefield = new EndlessMinefield(5, 0.2, 4);
+        minefield.setOpen(0, 0);
+
+        for (int chunk = 0; chunk < 100; chunk++) {
+            minefield.isMine(chunk * Chunk.SIZE, 1000);
+        }
+
+        assertEquals(1, minefield.getModifiedChunkCount());
+        assertEquals(5, minefield.getChunkCount());
+        assertTrue(minefield.isOpen(0, 0));
+    }
+
+    @Test
+    public void chunksWhoseFlagsAreAllRemovedAreOnlyCachedAgain() {
+        EndlessMinefield minefield = new EndlessMinefield(5, 0.2, 1);
+        minefield.toggleFlag(0, 0);
+        minefield.toggleFlag(0, 1);
+        minefield.toggleFlag(0, 0);
+        assertEquals(1, minefield.getModifiedChunkCount());
+
+        minefield.toggleFlag(0, 1);
+        assertEquals(0, minefield.getModifiedChunkCount());
+        assertEquals(1, minefield.getChunkCount());
+
+        minefield.isMine(5000, 5000);
+        assertEquals(1, minefield.getChunkCount());
+        assertFalse(minefield.isFlagged(0, 1));
+    }
+
+    @Test
+    public void droppedChunksAreDerivedAgainWithTheSameMines() {
+        EndlessMinefield minefield = new EndlessMinefield(5, 0.2, 1);
+        boolean[] before = new boolean[Chunk.SIZE];
+        for (int col = 0; col < Chunk.SIZE; col++) {
+            before[col] = minefield.isMine(100, col);
+        }
+
+        minefield.isMine(5000, 5000);
+
+        for (int col = 0; col < Chunk.SIZE; col++) {
+            assertEquals(before[col], minefield.isMine(100, col));
+        }
+    }
+
+    @Test
+    public void flagsAndOpenSquaresAreCounted() {
+        EndlessMinefield minefield = new EndlessMinefield(5, 0.2);
+        minefield.setOpen(-100, 100);
+        minefield.setOpen(-100, 100);
+        minefield.toggleFlag(500, 500);
+
+        assertEquals(1, minefield.getOpenCount());
+        assertEquals(1, minefield.getFlagCount());
+        assertEquals(2, minefield.getModifiedChunkCount());
+    }
+}
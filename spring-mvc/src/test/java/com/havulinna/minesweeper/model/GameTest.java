@@ -2,11 +2,14 @@ package com.havulinna.minesweeper.model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
-import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
-import com.havulinna.collections.SmartList;
+import org.junit.Test;
 
 
 public class GameTest {
@@ -25,8 +28,7 @@ public class GameTest {
         int rows = 20, cols = 20, numberOfMines = 80;
         Minefield minefield = new Game(rows, cols, numberOfMines).getMinefield();
 
-        SmartList<Square> mines = minefield.getSquares().select(x -> x.isMine());
-        assertEquals(numberOfMines, mines.size());
+        assertEquals(numberOfMines, minefield.getSquares().count(x -> x.isMine()));
     }
 
     @Test
@@ -56,6 +58,30 @@ public class GameTest {
         assertTrue(game.isWon());
     }
 
+    @Test
+    public void gameIsWonOnBoardsLargerThanOneBitsetWord() {
+        Game game = new Game(9, 9, 0);
+        game.getMinefield().getSquare(8, 8).setMine();
+
+        game.openSquare(0, 0);
+
+        assertTrue(game.isWon());
+        assertFalse(game.isLost());
+    }
+
+    @Test
+    public void flaggingRemainingMinesDoesNotWinTheGame() {
+        Game game = createGame(" M", "  ");
+        game.toggleFlag(game.getMinefield().getSquare(0, 1));
+        game.openSquare(0, 0);
+
+        assertFalse(game.isOver());
+
+        game.openSquare(1, 0);
+        game.openSquare(1, 1);
+        assertTrue(game.isWon());
+    }
+
     @Test
     public void openingSquareWithNoMinesNextToItOpensNeighborsRecursively() {
         Game game = createGame("  M ", "    ");
@@ -66,6 +92,75 @@ public class GameTest {
                 "01??");
     }
 
+    @Test
+    public void openSquareReturnsTheNumberOfOpenedSquares() {
+        Game game = createGame("  M ", "    ");
+
+        assertEquals(4, game.openSquare(1, 0));
+        assertEquals(1, game.openSquare(1, 3));
+        assertEquals(0, game.openSquare(1, 3));
+    }
+
+    @Test
+    public void openedAreaStopsAtFlaggedSquares() {
+        Game game = createGame("   ", "FFF", "   ");
+        game.openSquare(0, 0);
+
+        verifyGameState(game,
+                "000",
+                "FFF",
+                "???");
+    }
+
+    @Test
+    public void openingSquareOnVeryLargeEmptyBoardOpensEverySquare() {
+        Game game = new Game(1000, 1000, 0);
+
+        assertEquals(1000 * 1000, game.openSquare(500, 500));
+        assertTrue(game.isWon());
+    }
+
+    @Test
+    public void openingMineDoesNotOpenAnyOtherSquares() {
+        Game game = createGame("   ", " M ", "   ");
+
+        assertEquals(1, game.openSquare(1, 1));
+        verifyGameState(game,
+                "???",
+                "?M?",
+                "???");
+    }
+
+    @Test
+    public void listenersReceiveEachMoveWithTheChangedSquares() {
+        Game game = createGame("  M", "   ");
+        List<String> events = new ArrayList<String>();
+        game.addListener((g, move, changes) -> {
+            List<Integer> squares = new ArrayList<Integer>();
+            for (int i = 0; i < changes.size(); i++) {
+                squares.add(Integer.valueOf(changes.get(i)));
+            }
+            events.add(move + " " + squares);
+        });
+
+        game.toggleFlag(game.getMinefield().getSquare(1, 2));
+        game.openSquare(0, 0);
+
+        assertEquals(Arrays.asList("FLAG 1,2 [5]", "OPEN 0,0 [0, 1, 3, 4]"), events);
+    }
+
+    @Test
+    public void removedListenersAreNoLongerCalled() {
+        Game game = createGame("  ", "  ");
+        List<Move> moves = new ArrayList<Move>();
+        GameListener listener = (g, move, changes) -> moves.add(move);
+        game.addListener(listener);
+        game.removeListener(listener);
+
+        game.openSquare(0, 0);
+        assertTrue(moves.isEmpty());
+    }
+
     @Test
     public void openingFlaggedSquareHasNoEffect() {
         Game game = createGame("F  ", "  M");
@@ -73,6 +168,174 @@ public class GameTest {
         verifyGameState(game, "F??", "???");
     }
 
+    @Test
+    public void appliedMovesReturnTheirChangesAndNotifyListeners() {
+        Game game = createGame(
+                "   ",
+                "  M");
+        List<Move> moves = new ArrayList<Move>();
+        game.addListener((g, move, changes) -> moves.add(move));
+
+        assertEquals(1, game.apply(Move.flag(1, 2)).size());
+        assertTrue(game.apply(Move.open(1, 2)).isEmpty());
+        assertEquals(4, game.apply(Move.open(0, 0)).size());
+        assertTrue(game.apply(Move.flag(0, 0)).isEmpty());
+
+        assertEquals(Arrays.asList(Move.flag(1, 2), Move.open(0, 0)), moves);
+        assertEquals(1, game.getMoves());
+    }
+
+    @Test
+    public void chordOpensTheNeighborsOfASatisfiedNumber() {
+        Game game = createGame(
+                "M  ",
+                "   ",
+                "   ");
+        game.openSquare(1, 1);
+        game.toggleFlag(game.getMinefield().getSquare(0, 0));
+
+        assertEquals(7, game.chord(1, 1));
+        assertTrue(game.isWon());
+        assertEquals(2, game.getMoves());
+    }
+
+    @Test
+    public void chordFloodsFromOpenedSquaresWithoutMinesNextToThem() {
+        Game game = createGame(
+                "M    ",
+                "     ",
+                "     ",
+                "     ",
+                "     ");
+        game.openSquare(1, 1);
+        game.toggleFlag(game.getMinefield().getSquare(0, 0));
+
+        assertEquals(23, game.chord(1, 1));
+        assertTrue(game.isWon());
+    }
+
+    @Test
+    public void chordWithTooFewFlagsHasNoEffect() {
+        Game game = createGame(
+                "M  ",
+                "   ",
+                "   ");
+        game.openSquare(1, 1);
+
+        assertEquals(0, game.chord(1, 1));
+        assertEquals(0, game.chord(2, 2));
+        assertEquals(1, game.getMoves());
+        verifyGameState(game, "???", "?1?", "???");
+    }
+
+    @Test
+    public void chordAroundAWrongFlagOpensTheMine() {
+        Game game = createGame(
+                "M  ",
+                "   ",
+                "   ");
+        game.openSquare(1, 1);
+        game.toggleFlag(game.getMinefield().getSquare(0, 1));
+
+        game.chord(1, 1);
+
+        assertTrue(game.isLost());
+    }
+
+    @Test
+    public void gamesWithTheSameSeedHaveTheSameMines() {
+        Game first = new Game(50, 60, 500, 1234);
+        Game second = new Game(50, 60, 500, 1234);
+
+        for (int i = 0; i < first.getMinefield().size(); i++) {
+            assertEquals(first.getMinefield().isMine(i), second.getMinefield().isMine(i));
+        }
+        assertEquals(1234, first.getSeed().getAsLong());
+    }
+
+    @Test
+    public void gamesWithDifferentSeedsHaveDifferentMines() {
+        Game first = new Game(Difficulty.HARD, 1);
+        Game second = new Game(Difficulty.HARD, 2);
+
+        boolean different = false;
+        for (int i = 0; i < first.getMinefield().size(); i++) {
+            different |= first.getMinefield().isMine(i) != second.getMinefield().isMine(i);
+        }
+        assertTrue(different);
+    }
+
+    @Test
+    public void newGamesHaveASeedButRestoredGamesNeedNot() {
+        assertTrue(new Game(Difficulty.EASY).getSeed().isPresent());
+        assertFalse(new Game(new Minefield(2, 2), 0).getSeed().isPresent());
+        assertEquals(7, new Game(new Minefield(2, 2), 0, 7).getSeed().getAsLong());
+    }
+
+    @Test
+    public void firstMoveIsSafeWhenMinesAreDeferred() {
+        for (long seed = 0; seed < 50; seed++) {
+            Game game = new Game(9, 9, 60, seed, true);
+            assertTrue(game.isMinePlacementDeferred());
+            assertEquals(0, game.getMinefield().getMineCount());
+            assertEquals(60, game.getMineCount());
+
+            game.openSquare(4, 4);
+
+            assertFalse(game.isLost());
+            assertFalse(game.isMinePlacementDeferred());
+            assertEquals(60, game.getMinefield().getMineCount());
+            assertEquals(0, game.getMinefield().getNeighborMineCount(4, 4));
+            assertEquals(40, game.getSafeSquare());
+        }
+    }
+
+    @Test
+    public void deferredMinesDependOnTheSeedAndTheFirstMove() {
+        Game first = new Game(Difficulty.HARD, 11, true);
+        Game second = new Game(Difficulty.HARD, 11, true);
+        first.openSquare(3, 7);
+        second.openSquare(3, 7);
+
+        Minefield expected = Minefield.withRandomMines(20, 20, 40, 11, first.getMinefield().indexOf(3, 7));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.isMine(i), first.getMinefield().isMine(i));
+            assertEquals(expected.isMine(i), second.getMinefield().isMine(i));
+        }
+    }
+
+    @Test
+    public void flaggingBeforeTheFirstMoveDoesNotPlaceTheMines() {
+        Game game = new Game(Difficulty.EASY, 3, true);
+        game.toggleFlag(game.getMinefield().getSquare(0, 0));
+        game.openSquare(0, 0);
+
+        assertTrue(game.isMinePlacementDeferred());
+        assertEquals(0, game.getMoves());
+    }
+
+    @Test
+    public void versionGrowsWithEachMoveThatChangesTheGame() {
+        Game game = new Game(Difficulty.EASY, 3, true);
+        long version = game.getVersion();
+
+        game.toggleFlag(game.getMinefield().getSquare(0, 0));
+        assertTrue(game.getVersion() > version);
+        version = game.getVersion();
+
+        game.apply(Move.open(0, 0));
+        assertEquals(version, game.getVersion());
+
+        game.apply(Move.open(5, 5));
+        assertTrue(game.getVersion() > version);
+    }
+
+    @Test
+    public void restoredCopiesOfAGameHaveVersionsOfTheirOwn() {
+        Minefield minefield = new Minefield(2, 2);
+        assertNotEquals(new Game(minefield, 0).getVersion(), new Game(minefield, 0).getVersion());
+    }
+
     /**
      * This utility method lets you easily define the minefield of the game that
      * you wish to create. To place a mine in a field, use the char 'M', to
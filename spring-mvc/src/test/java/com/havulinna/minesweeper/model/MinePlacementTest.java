@@ -0,0 +1,142 @@
+package com.havulinna.minesweeper.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class MinePlacementTest {
+
+    @Test
+    public void exactlyTheRequestedAmountOfMinesIsPlaced() {
+        int[] counts = { 0, 1, 50, 99, 100, 101, 150, 199, 200 };
+        for (int count : counts) {
+            Minefield minefield = new Minefield(10, 20);
+            MinePlacement.placeMines(minefield, count, new SplittableRandom(count));
+
+            assertEquals(count, minefield.getMineCount());
+            assertEquals(count, countMines(minefield));
+        }
+    }
+
+    @Test
+    public void everySquareIsMinedWhenThereAreMoreMinesThanSquares() {
+        Minefield minefield = new Minefield(3, 3);
+        MinePlacement.placeMines(minefield, 20, new SplittableRandom(1));
+
+        assertEquals(9, minefield.getMineCount());
+    }
+
+    @Test
+    public void sameSeedPlacesTheSameMines() {
+        Minefield first = new Minefield(30, 30);
+        Minefield second = new Minefield(30, 30);
+        MinePlacement.placeMines(first, 100, new SplittableRandom(42));
+        MinePlacement.placeMines(second, 100, new SplittableRandom(42));
+
+        assertEquals(first.toString(), second.toString());
+        for (int i = 0; i < first.getWordCount(); i++) {
+            assertEquals(first.getWord(Minefield.Layer.MINES, i), second.getWord(Minefield.Layer.MINES, i));
+        }
+    }
+
+    @Test
+    public void everySquareIsEquallyLikelyToGetAMine() {
+        verifyUniformity(3);
+        verifyUniformity(17);
+    }
+
+    @Test
+    public void safeSquareAndItsNeighborsGetNoMines() {
+        int[] counts = { 1, 40, 95, 150, 191 };
+        int[] safeSquares = { 0, 19, 47, 199 };
+        for (int count : counts) {
+            for (int safeSquare : safeSquares) {
+                Minefield minefield = new Minefield(10, 20);
+                MinePlacement.placeMines(minefield, count, new SplittableRandom(count), safeSquare);
+
+                assertEquals(count, countMines(minefield));
+                assertFalse(minefield.isMine(safeSquare));
+                int[] neighbors = new int[8];
+                for (int i = 0; i < minefield.neighborsOf(safeSquare, neighbors); i++) {
+                    assertFalse(minefield.isMine(neighbors[i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void everyOtherSquareIsMinedWhenThereAreTooManyMinesAroundTheSafeSquare() {
+        Minefield minefield = new Minefield(4, 4);
+        MinePlacement.placeMines(minefield, 15, new SplittableRandom(1), 5);
+
+        assertEquals(7, minefield.getMineCount());
+        assertFalse(minefield.isMine(5));
+        assertTrue(minefield.isMine(15));
+    }
+
+    @Test
+    public void otherSquaresAreEquallyLikelyToGetAMineAroundTheSafeSquare() {
+        int rounds = 20000;
+        int[] hits = new int[20];
+        SplittableRandom random = new SplittableRandom(321);
+        for (int round = 0; round < rounds; round++) {
+            Minefield minefield = new Minefield(4, 5);
+            MinePlacement.placeMines(minefield, 5, random, 6);
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] += minefield.isMine(i) ? 1 : 0;
+            }
+        }
+        // Squares 0-2, 5-7 and 10-12 are kept free of mines
+        double expected = rounds * 5 / 11.0;
+        for (int i = 0; i < hits.length; i++) {
+            if (i % 5 <= 2 && i / 5 <= 2) {
+                assertEquals(0, hits[i]);
+            } else {
+                assertEquals(expected, hits[i], expected * 0.1);
+            }
+        }
+    }
+
+    @Test
+    public void largeSparseBoardsArePlacedQuickly() {
+        Minefield minefield = new Minefield(5000, 5000);
+        long start = System.nanoTime();
+        MinePlacement.placeMines(minefield, 1000, new SplittableRandom(7));
+
+        assertEquals(1000, minefield.getMineCount());
+        assertTrue(System.nanoTime() - start < 1000000000L);
+    }
+
+    /**
+     * Places mines on a 20 square minefield many times and checks that each
+     * square gets its share of the mines within a generous margin.
+     */
+    private static void verifyUniformity(int mineCount) {
+        int rounds = 20000;
+        int[] hits = new int[20];
+        SplittableRandom random = new SplittableRandom(123);
+        for (int round = 0; round < rounds; round++) {
+            Minefield minefield = new Minefield(4, 5);
+            MinePlacement.placeMines(minefield, mineCount, random);
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] += minefield.isMine(i) ? 1 : 0;
+            }
+        }
+        double expected = rounds * mineCount / 20.0;
+        for (int hit : hits) {
+            assertEquals(expected, hit, expected * 0.1);
+        }
+    }
+
+    private static int countMines(Minefield minefield) {
+        int mines = 0;
+        for (int i = 0; i < minefield.size(); i++) {
+            mines += minefield.isMine(i) ? 1 : 0;
+        }
+        return mines;
+    }
+}
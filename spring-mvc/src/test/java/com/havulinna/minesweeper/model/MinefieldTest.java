@@ -3,9 +3,12 @@ package com.havulinna.minesweeper.model;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
+import com.havulinna.collections.SmartList;
+
 
 public class MinefieldTest {
 
@@ -27,6 +30,21 @@ public class MinefieldTest {
         assertEquals(6*8, minefield_6x8.getSquares().size());
     }
 
+    @Test
+    public void squaresAreListedRowByRowAndCannotBeModified() {
+        SmartList<Square> squares = minefield_6x8.getSquares();
+
+        assertEquals(minefield_6x8.getSquare(0, 0), squares.get(0));
+        assertEquals(minefield_6x8.getSquare(1, 2), squares.get(10));
+        assertEquals(minefield_6x8.getSquare(5, 7), squares.get(47));
+        try {
+            squares.remove(0);
+            fail("Squares should not be removable");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(6 * 8, squares.size());
+        }
+    }
+
     @Test
     public void aSquareIsFoundForAllCombinationsOfCoordinates() {
         for (int row=0; row<6; row++) {
@@ -69,6 +87,95 @@ public class MinefieldTest {
         verifyNumberOfNeighbors(minefield_6x8, minefield_6x8.getSquare(3, 7), 5);
     }
 
+    @Test
+    public void changesMadeThroughSquareAreVisibleToOtherSquaresWithSameCoordinates() {
+        minefield_6x8.getSquare(2, 3).setMine();
+        minefield_6x8.getSquare(2, 3).setOpen();
+        minefield_6x8.getSquare(4, 5).toggleFlag();
+
+        Square mine = minefield_6x8.getSquare(2, 3);
+        assertTrue(mine.isMine() && mine.isOpen() && !mine.isFlagged());
+        assertTrue(minefield_6x8.isFlagged(4, 5));
+        assertEquals(2, minefield_6x8.getSquares().count(s -> s.isMine() || s.isFlagged()));
+    }
+
+    @Test
+    public void squaresAreStoredInRowMajorOrder() {
+        assertEquals(0, minefield_6x8.indexOf(0, 0));
+        assertEquals(8 * 3 + 5, minefield_6x8.indexOf(3, 5));
+        assertEquals(3, minefield_6x8.rowOf(8 * 3 + 5));
+        assertEquals(5, minefield_6x8.colOf(8 * 3 + 5));
+    }
+
+    @Test
+    public void squaresBeyondFirstBitsetWordKeepTheirOwnState() {
+        Minefield minefield_10x10 = new Minefield(10, 10);
+        minefield_10x10.getSquare(6, 4).setMine(); // index 64, second word
+        minefield_10x10.getSquare(9, 9).setOpen(); // last index
+
+        assertTrue(minefield_10x10.isMine(6, 4));
+        assertFalse(minefield_10x10.isMine(0, 0));
+        assertTrue(minefield_10x10.isOpen(9, 9));
+        assertEquals(2, minefield_10x10.getSquares().count(s -> s.isMine() || s.isOpen()));
+    }
+
+    @Test
+    public void neighborMineCountIsCalculatedFromAdjacentSquares() {
+        minefield_6x8.getSquare(0, 1).setMine();
+        minefield_6x8.getSquare(1, 1).setMine();
+        minefield_6x8.getSquare(3, 3).setMine();
+
+        assertEquals(2, minefield_6x8.getNeighborMineCount(0, 0));
+        assertEquals(2, minefield_6x8.getNeighborMineCount(2, 2));
+        assertEquals(1, minefield_6x8.getNeighborMineCount(4, 4));
+        assertEquals(0, minefield_6x8.getNeighborMineCount(5, 7));
+    }
+
+    @Test
+    public void placingMineTwiceDoesNotChangeNeighborMineCounts() {
+        minefield_6x8.getSquare(1, 1).setMine();
+        minefield_6x8.getSquare(1, 1).setMine();
+
+        assertEquals(1, minefield_6x8.getNeighborMineCount(0, 0));
+        assertEquals(0, minefield_6x8.getNeighborMineCount(1, 1));
+    }
+
+    @Test
+    public void neighborMineCountsAreCorrectForSquareSurroundedByMines() {
+        Minefield minefield_3x3 = new Minefield(3, 3);
+        minefield_3x3.getSquares().forEachMatching(s -> !(s.getRow() == 1 && s.getCol() == 1), s -> s.setMine());
+
+        assertEquals(8, minefield_3x3.getNeighborMineCount(1, 1));
+        assertEquals(2, minefield_3x3.getNeighborMineCount(0, 0));
+    }
+
+    @Test
+    public void squareCountersAreUpdatedAsSquaresChange() {
+        minefield_6x8.getSquare(0, 0).setMine();
+        minefield_6x8.getSquare(0, 1).setMine();
+        minefield_6x8.getSquare(0, 1).setOpen();
+        minefield_6x8.getSquare(0, 2).setOpen();
+        minefield_6x8.getSquare(0, 2).setOpen();
+        minefield_6x8.getSquare(3, 3).toggleFlag();
+
+        assertEquals(2, minefield_6x8.getMineCount());
+        assertEquals(2, minefield_6x8.getOpenCount());
+        assertEquals(1, minefield_6x8.getFlagCount());
+        assertTrue(minefield_6x8.containsOpenMine());
+        assertEquals(6 * 8 - 2 - 1, minefield_6x8.getSafeSquaresLeft());
+
+        minefield_6x8.getSquare(3, 3).toggleFlag();
+        assertEquals(0, minefield_6x8.getFlagCount());
+    }
+
+    @Test
+    public void placingMineOnOpenSquareCountsAsOpenMine() {
+        minefield_6x8.getSquare(2, 2).setOpen();
+        minefield_6x8.getSquare(2, 2).setMine();
+
+        assertTrue(minefield_6x8.containsOpenMine());
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void gettingSquareWithIncorrectCoordinatesThrowsException() {
         minefield_6x8.getSquare(100, 100);
@@ -1,5 +1,6 @@
 package com.havulinna.minesweeper.model;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -78,6 +79,19 @@ public class SquareTest {
         assertFalse(square.isFlagged());
     }
 
+    @Test
+    public void detachedSquaresHoldOnlyTheirOwnStateWhateverTheirCoordinates() {
+        Square far = square(100000, 100000);
+        far.setMine();
+        far.toggleFlag();
+
+        assertEquals(1, far.getMinefield().size());
+        assertEquals(100000, far.getRow());
+        assertEquals(100000, far.getCol());
+        assertTrue(far.isMine());
+        assertTrue(far.isFlagged());
+    }
+
 
     private static void verifySquaresAreNotNeighbors(Square first, Square second) {
         // Tests the relationship both ways: a is not neighbor of b == b is not neighbor of a
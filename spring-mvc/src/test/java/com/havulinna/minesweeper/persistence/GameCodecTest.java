@@ -0,0 +1,163 @@
+package com.havulinna.minesweeper.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.havulinna.minesweeper.model.Difficulty;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
+
+public class GameCodecTest {
+
+    @Test
+    public void decodedGameEqualsTheEncodedOne() {
+        Game game = new Game(Difficulty.FAIR);
+        game.toggleFlag(game.getMinefield().getSquare(1, 2));
+        game.openSquare(7, 7);
+
+        Game decoded = GameCodec.decode(ByteBuffer.wrap(GameCodec.encode(game)));
+
+        assertEquals(game.toString(), decoded.toString());
+        assertEquals(game.getMoves(), decoded.getMoves());
+        assertEquals(game.getMinefield().getMineCount(), decoded.getMinefield().getMineCount());
+        assertEquals(game.isOver(), decoded.isOver());
+    }
+
+    @Test
+    public void hardGameFitsInLessThan150Bytes() {
+        Game game = new Game(Difficulty.HARD);
+        for (int row = 0; row < 20; row += 3) {
+            for (int col = 0; col < 20; col += 3) {
+                if (!game.isOver() && !game.getMinefield().isMine(row, col)) {
+                    game.openSquare(row, col);
+                }
+            }
+        }
+
+        assertTrue(GameCodec.encode(game).length < 150);
+    }
+
+    @Test
+    public void sparseBitsetsOfLargeBoardsAreStoredAsSetBits() {
+        Game game = new Game(1000, 1000, 100);
+
+        assertTrue(GameCodec.encode(game).length < 1000);
+        assertEquals(100, GameCodec.decode(ByteBuffer.wrap(GameCodec.encode(game))).getMinefield().getMineCount());
+    }
+
+    @Test
+    public void gamesAreReadFromTheCurrentPositionOfTheBuffer() {
+        Game first = new Game(Difficulty.EASY);
+        Game second = new Game(Difficulty.HARD);
+        ByteBuffer buffer = ByteBuffer.allocate(GameCodec.maxEncodedSize(first) + GameCodec.maxEncodedSize(second));
+        GameCodec.encode(first, buffer);
+        GameCodec.encode(second, buffer);
+        buffer.flip();
+
+        assertEquals(first.toString(), GameCodec.decode(buffer).toString());
+        assertEquals(second.toString(), GameCodec.decode(buffer).toString());
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void boardsSmallerThanOneWordRoundTrip() {
+        Minefield minefield = new Minefield(3, 3);
+        Game game = new Game(minefield, 0);
+        game.openSquare(2, 2);
+
+        Game decoded = GameCodec.decode(ByteBuffer.wrap(GameCodec.encode(game)));
+
+        assertTrue(decoded.isWon());
+        assertEquals(9, decoded.getMinefield().getOpenCount());
+    }
+
+    @Test
+    public void varintsRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        int[] values = { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE };
+        int expectedSize = 0;
+        for (int value : values) {
+            GameCodec.putVarint(buffer, value);
+            expectedSize += GameCodec.varintSize(value);
+        }
+        assertEquals(1 + 1 + 1 + 2 + 2 + 3 + 5, expectedSize);
+        assertEquals(expectedSize, buffer.position());
+        buffer.flip();
+        for (int value : values) {
+            assertEquals(value, GameCodec.getVarint(buffer));
+        }
+    }
+
+    @Test
+    public void seededGamesAreStoredWithoutTheirMines() {
+        Game game = new Game(1000, 1000, 100000, 99);
+        game.openSquare(500, 500);
+
+        byte[] encoded = GameCodec.encode(game);
+        Game decoded = GameCodec.decode(ByteBuffer.wrap(encoded));
+
+        assertTrue(GameCodec.encode(new Game(Difficulty.HARD, 5)).length < 20);
+        assertEquals(game.toString(), decoded.toString());
+        assertEquals(99, decoded.getSeed().getAsLong());
+        for (int i = 0; i < game.getMinefield().size(); i += 97) {
+            assertEquals(game.getMinefield().isMine(i), decoded.getMinefield().isMine(i));
+        }
+    }
+
+    @Test
+    public void gamesWithDeferredMinesRoundTrip() {
+        Game game = new Game(Difficulty.FAIR, 8, true);
+        game.toggleFlag(game.getMinefield().getSquare(2, 3));
+
+        Game decoded = GameCodec.decode(ByteBuffer.wrap(GameCodec.encode(game)));
+
+        assertTrue(decoded.isMinePlacementDeferred());
+        assertEquals(game.getMineCount(), decoded.getMineCount());
+        assertTrue(decoded.getMinefield().getSquare(2, 3).isFlagged());
+
+        game.openSquare(8, 8);
+        decoded.openSquare(8, 8);
+        assertEquals(game.toString(), decoded.toString());
+    }
+
+    @Test
+    public void minesPlacedAroundTheFirstMoveRoundTrip() {
+        Game game = new Game(Difficulty.HARD, 8, true);
+        game.openSquare(10, 15);
+
+        Game decoded = GameCodec.decode(ByteBuffer.wrap(GameCodec.encode(game)));
+
+        assertFalse(decoded.isMinePlacementDeferred());
+        assertEquals(game.getSafeSquare(), decoded.getSafeSquare());
+        assertEquals(game.toString(), decoded.toString());
+        for (int i = 0; i < game.getMinefield().size(); i++) {
+            assertEquals(game.getMinefield().isMine(i), decoded.getMinefield().isMine(i));
+        }
+    }
+
+    @Test
+    public void gamesWithoutSeedStoreTheirMines() {
+        Minefield minefield = Minefield.withRandomMines(20, 20, 40, 3);
+        Game game = new Game(minefield, 0);
+
+        Game decoded = GameCodec.decode(ByteBuffer.wrap(GameCodec.encode(game)));
+
+        assertFalse(decoded.getSeed().isPresent());
+        assertEquals(40, decoded.getMinefield().getMineCount());
+        for (int i = 0; i < minefield.size(); i++) {
+            assertEquals(minefield.isMine(i), decoded.getMinefield().isMine(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownVersionIsRejected() {
+        byte[] encoded = GameCodec.encode(new Game(Difficulty.EASY));
+        encoded[0] = 99;
+        GameCodec.decode(ByteBuffer.wrap(encoded));
+    }
+}
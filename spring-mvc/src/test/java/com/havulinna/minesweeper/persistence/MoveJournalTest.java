@@ -0,0 +1,200 @@
+package com.havulinna.minesweeper.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.havulinna.minesweeper.model.Difficulty;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
+
+public class MoveJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private MoveJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder().toPath();
+        journal = new MoveJournal(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    public void gamesAreRebuiltByReplayingTheirMoves() throws IOException {
+        UUID id = UUID.randomUUID();
+        Game game = record(id, new Game(Difficulty.FAIR));
+        game.toggleFlag(game.getMinefield().getSquare(2, 3));
+        game.openSquare(5, 5);
+
+        Game recovered = reopen().get(id);
+
+        assertEquals(game.toString(), recovered.toString());
+        assertEquals(game.getMoves(), recovered.getMoves());
+        assertEquals(game.isOver(), recovered.isOver());
+    }
+
+    @Test
+    public void chordsAreReplayed() throws IOException {
+        UUID id = UUID.randomUUID();
+        Minefield minefield = new Minefield(5, 5);
+        minefield.getSquare(0, 0).setMine();
+        Game game = record(id, new Game(minefield, 0));
+        game.openSquare(1, 1);
+        game.toggleFlag(game.getMinefield().getSquare(0, 0));
+        game.chord(1, 1);
+
+        Game recovered = reopen().get(id);
+
+        assertTrue(recovered.isWon());
+        assertEquals(2, recovered.getMoves());
+    }
+
+    @Test
+    public void removedGamesAreNotRecovered() throws IOException {
+        UUID removed = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        record(removed, new Game(Difficulty.EASY));
+        record(kept, new Game(Difficulty.EASY));
+        journal.gameRemoved(removed);
+
+        Map<UUID, Game> games = reopen();
+
+        assertFalse(games.containsKey(removed));
+        assertTrue(games.containsKey(kept));
+    }
+
+    @Test
+    public void compactionFoldsMovesIntoSnapshots() throws IOException {
+        UUID id = UUID.randomUUID();
+        Game game = record(id, new Game(30, 40, 0));
+        game.getMinefield().getSquare(20, 20).setMine();
+        game.openSquare(0, 0);
+        UUID removed = UUID.randomUUID();
+        record(removed, new Game(Difficulty.EASY));
+        journal.gameRemoved(removed);
+
+        journal.compact();
+
+        assertEquals(1, count("snapshot-"));
+        assertEquals(1, count("journal-"));
+        assertEquals(0, journal.getSegmentBytes());
+
+        Map<UUID, Game> games = reopen();
+        assertEquals(1, games.size());
+        assertTrue(games.get(id).isWon());
+        assertEquals(1, games.get(id).getMoves());
+    }
+
+    @Test
+    public void movesAfterCompactionAreReplayedOnTopOfTheSnapshot() throws IOException {
+        UUID id = UUID.randomUUID();
+        Game game = record(id, new Game(Difficulty.FAIR));
+        game.toggleFlag(game.getMinefield().getSquare(0, 0));
+        journal.compact();
+        game.toggleFlag(game.getMinefield().getSquare(0, 0));
+        game.toggleFlag(game.getMinefield().getSquare(1, 1));
+        journal.compact();
+        game.toggleFlag(game.getMinefield().getSquare(2, 2));
+
+        Game recovered = reopen().get(id);
+
+        assertEquals(game.toString(), recovered.toString());
+    }
+
+    @Test
+    public void recordsCutShortByACrashAreIgnored() throws IOException {
+        UUID id = UUID.randomUUID();
+        Game game = record(id, new Game(Difficulty.EASY));
+        game.toggleFlag(game.getMinefield().getSquare(0, 0));
+        game.toggleFlag(game.getMinefield().getSquare(1, 1));
+        journal.close();
+
+        Path segment = directory.resolve("journal-1.log");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        journal = new MoveJournal(directory);
+
+        Game recovered = journal.recover().get(id);
+        assertTrue(recovered.getMinefield().isFlagged(0, 0));
+        assertFalse(recovered.getMinefield().isFlagged(1, 1));
+    }
+
+    @Test
+    public void recordsWithImpossibleLengthsEndTheJournal() throws IOException {
+        UUID id = UUID.randomUUID();
+        Game game = record(id, new Game(Difficulty.EASY));
+        game.toggleFlag(game.getMinefield().getSquare(0, 0));
+        journal.close();
+
+        Path segment = directory.resolve("journal-1.log");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            header.putInt(Integer.MAX_VALUE - 8).putInt(0).putLong(0);
+            header.flip();
+            channel.write(header);
+        }
+        journal = new MoveJournal(directory);
+
+        Game recovered = journal.recover().get(id);
+        assertTrue(recovered.getMinefield().isFlagged(0, 0));
+    }
+
+    @Test
+    public void appendsAfterRecoveryGoToANewSegment() throws IOException {
+        UUID first = UUID.randomUUID();
+        record(first, new Game(Difficulty.EASY));
+        reopen();
+        UUID second = UUID.randomUUID();
+        record(second, new Game(Difficulty.EASY));
+
+        Map<UUID, Game> games = reopen();
+
+        assertEquals(2, games.size());
+        assertEquals(3, count("journal-"));
+    }
+
+    private Game record(UUID id, Game game) {
+        synchronized (game) {
+            journal.gameCreated(id, game);
+            game.addListener((changed, move, changes) -> journal.moveApplied(id, move));
+        }
+        return game;
+    }
+
+    private Map<UUID, Game> reopen() throws IOException {
+        journal.close();
+        journal = new MoveJournal(directory);
+        return journal.recover();
+    }
+
+    private long count(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
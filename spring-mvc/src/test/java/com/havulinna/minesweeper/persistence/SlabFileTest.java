@@ -0,0 +1,83 @@
+package com.havulinna.minesweeper.persistence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SlabFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void allocatedSlotsAreDistinct() throws IOException {
+        try (SlabFile slab = new SlabFile(file(), 64)) {
+            assertNotEquals(slab.allocate(), slab.allocate());
+        }
+    }
+
+    @Test
+    public void freedSlotsAreReused() throws IOException {
+        try (SlabFile slab = new SlabFile(file(), 64)) {
+            int first = slab.allocate();
+            slab.allocate();
+            slab.free(first);
+
+            assertEquals(first, slab.allocate());
+        }
+    }
+
+    @Test
+    public void reusedSlotsAreZeroed() throws IOException {
+        try (SlabFile slab = new SlabFile(file(), 64)) {
+            int slot = slab.allocate();
+            slab.putLong(slot, 16, 42L);
+            slab.free(slot);
+
+            assertEquals(slot, slab.allocate());
+            assertEquals(0L, slab.getLong(slot, 16));
+        }
+    }
+
+    @Test
+    public void onlyCommittedSlotsAreRecoveredWithTheirContents() throws IOException {
+        Path file = file();
+        try (SlabFile slab = new SlabFile(file, 64)) {
+            int committed = slab.allocate();
+            slab.putLong(committed, SlabFile.HEADER_BYTES, 1234L);
+            slab.commit(committed);
+            slab.allocate();
+        }
+
+        try (SlabFile reopened = new SlabFile(file, 64)) {
+            assertArrayEquals(new int[] {0}, reopened.getUsedSlots());
+            assertEquals(1234L, reopened.getLong(0, SlabFile.HEADER_BYTES));
+        }
+    }
+
+    @Test
+    public void fileGrowsBySegmentsWhenSlotsRunOut() throws IOException {
+        int largeSlot = 32 * 1024 * 1024;
+        try (SlabFile slab = new SlabFile(file(), largeSlot)) {
+            for (int i = 0; i < 3; i++) {
+                slab.commit(slab.allocate());
+            }
+            slab.putLong(2, largeSlot - 8, 7L);
+
+            assertTrue(slab.getCapacity() >= 3);
+            assertEquals(7L, slab.getLong(2, largeSlot - 8));
+        }
+    }
+
+    private Path file() throws IOException {
+        return folder.newFile().toPath();
+    }
+}
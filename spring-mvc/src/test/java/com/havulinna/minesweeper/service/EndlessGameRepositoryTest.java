@@ -0,0 +1,112 @@
+package com.havulinna.minesweeper.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.EndlessGame;
+
+public class EndlessGameRepositoryTest {
+
+    private final AtomicLong time = new AtomicLong();
+    private final RepositoryProperties properties = new RepositoryProperties();
+
+    @Test
+    public void storedGameIsFoundById() throws NotFoundException {
+        EndlessGameRepository repository = new EndlessGameRepository(properties, time::get);
+        EndlessGame game = new EndlessGame(1, 0.2);
+
+        String id = repository.store(game);
+
+        assertTrue(game == repository.getGameById(id));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void idleGamesExpire() throws NotFoundException {
+        properties.setIdleTimeout(1000);
+        EndlessGameRepository repository = new EndlessGameRepository(properties, time::get);
+        String id = repository.store(new EndlessGame(1, 0.2));
+
+        time.set(1500);
+        repository.evictExpiredGames();
+
+        repository.getGameById(id);
+    }
+
+    @Test
+    public void leastRecentlyUsedGameIsRemovedOverTheLimit() throws NotFoundException {
+        properties.setMaxGames(2);
+        EndlessGameRepository repository = new EndlessGameRepository(properties, time::get);
+        String first = repository.store(new EndlessGame(1, 0.2));
+        time.set(10);
+        String second = repository.store(new EndlessGame(2, 0.2));
+        time.set(20);
+        repository.getGameById(first);
+
+        repository.store(new EndlessGame(3, 0.2));
+
+        assertEquals(2, repository.getSize());
+        repository.getGameById(first);
+        try {
+            repository.getGameById(second);
+        } catch (NotFoundException e) {
+            return;
+        }
+        throw new AssertionError("The least recently used game should have been removed");
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void lostGamesExpireWithTheFinishedTimeout() throws NotFoundException {
+        properties.setIdleTimeout(1000);
+        properties.setFinishedTimeout(100);
+        EndlessGameRepository repository = new EndlessGameRepository(properties, time::get);
+        EndlessGame game = new EndlessGame(1, 0.2);
+        String id = repository.store(game);
+        int col = 10;
+        while (!game.getMinefield().isMine(10, col)) {
+            col++;
+        }
+        repository.getGameById(id).openSquare(10, col);
+        repository.getGameById(id);
+
+        time.set(200);
+        repository.evictExpiredGames();
+
+        repository.getGameById(id);
+    }
+
+    @Test
+    public void leastRecentlyUsedGameIsRemovedWhenAGameOutgrowsTheMemoryLimit() throws NotFoundException {
+        long freshBytes = new EndlessGame(1, 0.2).estimateMemoryUsage();
+        properties.setMaxBytes(explore(new EndlessGame(2, 0.2)).estimateMemoryUsage() + freshBytes - 1);
+        EndlessGameRepository repository = new EndlessGameRepository(properties, time::get);
+        String first = repository.store(new EndlessGame(1, 0.2));
+        time.set(10);
+        EndlessGame explored = new EndlessGame(2, 0.2);
+        String second = repository.store(explored);
+
+        explore(explored);
+        time.set(20);
+        repository.getGameById(second);
+
+        assertEquals(1, repository.getSize());
+        assertEquals(explored.estimateMemoryUsage(), repository.getEstimatedBytes());
+        try {
+            repository.getGameById(first);
+        } catch (NotFoundException e) {
+            return;
+        }
+        throw new AssertionError("The least recently used game should have been removed");
+    }
+
+    private static EndlessGame explore(EndlessGame game) {
+        for (int i = 1; i <= 10; i++) {
+            game.toggleFlag(i * 1000, i * 1000);
+        }
+        return game;
+    }
+}
@@ -0,0 +1,212 @@
+package com.havulinna.minesweeper.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Move;
+import com.havulinna.minesweeper.service.GameEventBroadcaster.EventSink;
+import com.havulinna.minesweeper.service.GameEventBroadcaster.Subscription;
+
+public class GameEventBroadcasterTest {
+
+    private final EventProperties properties = new EventProperties();
+    private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+    private final AtomicLong time = new AtomicLong();
+    private GameEventBroadcaster broadcaster;
+    private Game game;
+
+    @Before
+    public void setUp() {
+        properties.setMaxQueuedEvents(3);
+        properties.setWriteTimeout(1000);
+        broadcaster = new GameEventBroadcaster(properties, new ObjectMapper(), tasks::add, time::get);
+        game = new Game(10, 10, 0);
+        game.getMinefield().getSquare(9, 9).setMine();
+    }
+
+    @Test
+    public void spectatorsReceiveTheWholeGameAndThenEachMove() {
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe("abc", game, sink);
+        runTasks();
+        game.apply(Move.flag(0, 0));
+        game.apply(Move.open(5, 5));
+        runTasks();
+
+        assertEquals(3, sink.events.size());
+        assertTrue(sink.event(0).startsWith("event: game\ndata: {\"id\":\"abc\""));
+        assertTrue(sink.event(1).startsWith("event: move\ndata: {\"moves\":0,\"state\":\"ON\",\"cells\":[{\"row\":0"));
+        assertTrue(sink.event(2).startsWith("event: move\ndata: {\"moves\":1,\"state\":\"ON\""));
+        assertTrue(sink.event(2).endsWith("}\n\n"));
+    }
+
+    @Test
+    public void spectatorsOfAGameShareTheEncodedMoves() {
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+        broadcaster.subscribe("abc", game, first);
+        broadcaster.subscribe("abc", game, second);
+        runTasks();
+        game.apply(Move.flag(0, 0));
+        runTasks();
+
+        assertEquals(2, first.events.size());
+        assertSame(first.events.get(1), second.events.get(1));
+        assertEquals(2, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    public void spectatorsFallingBehindReceiveTheWholeGameInstead() {
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe("abc", game, sink);
+        runTasks();
+        for (int col = 0; col < 5; col++) {
+            game.apply(Move.flag(0, col));
+        }
+        runTasks();
+
+        assertEquals(2, sink.events.size());
+        assertTrue(sink.event(1).startsWith("event: game"));
+        assertTrue(sink.event(1).contains("\"FFFFF.....\""));
+    }
+
+    @Test
+    public void spectatorsShareTheWholeGameWhileItIsUnchanged() {
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+        broadcaster.subscribe("abc", game, first);
+        broadcaster.subscribe("abc", game, second);
+        runTasks();
+        assertSame(first.events.get(0), second.events.get(0));
+
+        for (int col = 0; col < 5; col++) {
+            game.apply(Move.flag(0, col));
+        }
+        runTasks();
+
+        assertTrue(first.event(1).contains("\"FFFFF.....\""));
+        assertSame(first.events.get(1), second.events.get(1));
+    }
+
+    @Test
+    public void cancelledSpectatorsReceiveNoMoreEvents() {
+        RecordingSink sink = new RecordingSink();
+        Subscription subscription = broadcaster.subscribe("abc", game, sink);
+        runTasks();
+        subscription.cancel();
+        game.apply(Move.flag(0, 0));
+        runTasks();
+
+        assertEquals(1, sink.events.size());
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    public void spectatorsThatCannotBeWrittenToAreUnsubscribed() {
+        RecordingSink sink = new RecordingSink();
+        sink.failing = true;
+        broadcaster.subscribe("abc", game, sink);
+        runTasks();
+
+        assertTrue(sink.closed);
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    public void spectatorsWhoseWritesBlockTooLongAreDropped() {
+        RecordingSink slow = new RecordingSink();
+        slow.duringWrite = () -> {
+            time.addAndGet(1001);
+            broadcaster.dropSlowSpectators();
+        };
+        RecordingSink fast = new RecordingSink();
+        broadcaster.subscribe("abc", game, slow);
+        broadcaster.subscribe("abc", game, fast);
+        runTasks();
+
+        assertTrue(slow.closed);
+        assertEquals(1, slow.closeCount);
+        assertFalse(fast.closed);
+        assertEquals(1, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    public void spectatorsWritingWithinTheTimeoutAreKept() {
+        RecordingSink sink = new RecordingSink();
+        sink.duringWrite = () -> {
+            time.addAndGet(1000);
+            broadcaster.dropSlowSpectators();
+        };
+        broadcaster.subscribe("abc", game, sink);
+        runTasks();
+        time.addAndGet(5000);
+        broadcaster.dropSlowSpectators();
+
+        assertFalse(sink.closed);
+        assertEquals(1, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    public void idleSpectatorsArePinged() {
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe("abc", game, sink);
+        runTasks();
+        broadcaster.ping();
+        runTasks();
+
+        assertEquals(": ping\n\n", sink.event(1));
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static class RecordingSink implements EventSink {
+        private final List<byte[]> events = new ArrayList<byte[]>();
+        private boolean failing = false;
+        private boolean closed = false;
+        private int closeCount = 0;
+        private Runnable duringWrite = () -> {};
+
+        @Override
+        public void write(byte[] event) throws IOException {
+            if (failing) {
+                throw new IOException("Connection reset");
+            }
+            duringWrite.run();
+            events.add(event);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            closeCount++;
+        }
+
+        private String event(int i) {
+            return new String(events.get(i), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.havulinna.minesweeper.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.havulinna.minesweeper.exception.BadRequestException;
+import com.havulinna.minesweeper.model.Difficulty;
+import com.havulinna.minesweeper.model.Game;
+
+public class GameFactoryTest {
+
+    private final GameProperties properties = new GameProperties();
+    private final GameFactory factory = new GameFactory(properties);
+
+    @Test
+    public void gamesOfPredefinedDifficultiesAreCreated() {
+        Game game = factory.newGame(Difficulty.HARD, null, false);
+
+        assertEquals(20, game.getMinefield().getHeight());
+        assertEquals(40, game.getMinefield().getMineCount());
+    }
+
+    @Test
+    public void largeCustomGamesFitTheDefaultLimit() throws BadRequestException {
+        Game game = factory.newGame(2000, 2000, 800000, null, false);
+
+        assertEquals(2000, game.getMinefield().getWidth());
+        assertEquals(800000, game.getMinefield().getMineCount());
+    }
+
+    @Test
+    public void safeGamesGetARandomSeedAndDeferTheirMines() throws BadRequestException {
+        Game game = factory.newGame(100, 100, 2000, null, true);
+
+        assertTrue(game.getSeed().isPresent());
+        assertTrue(game.isMinePlacementDeferred());
+        assertEquals(2000, game.getMineCount());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void gamesOverTheMemoryLimitAreRejected() throws BadRequestException {
+        properties.setMaxBytes(Game.estimateMemoryUsage(100, 100) - 1);
+        factory.newGame(100, 100, 10, null, false);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void gamesWithMoreSquaresThanCanBeIndexedAreRejected() throws BadRequestException {
+        properties.setMaxBytes(Long.MAX_VALUE);
+        factory.newGame(100000, 100000, 10, null, false);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void emptyBoardsAreRejected() throws BadRequestException {
+        factory.newGame(10, 0, 0, null, false);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void boardsWithoutSafeSquaresAreRejected() throws BadRequestException {
+        factory.newGame(10, 10, 100, null, false);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void negativeMineCountIsRejected() throws BadRequestException {
+        factory.newGame(10, 10, -1, null, false);
+    }
+}
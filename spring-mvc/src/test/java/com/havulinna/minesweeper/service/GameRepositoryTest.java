@@ -5,11 +5,22 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.junit.Test;
 
 import com.havulinna.minesweeper.exception.NotFoundException;
 import com.havulinna.minesweeper.model.Difficulty;
 import com.havulinna.minesweeper.model.Game;
+import com.havulinna.minesweeper.model.Minefield;
 
 
 public class GameRepositoryTest {
@@ -61,4 +72,189 @@ public class GameRepositoryTest {
         assertTrue(repository.containsGame(id));
         assertFalse(repository.containsGame("NOT A VALID ID"));
     }
+
+    @Test
+    public void gamesExpireWhenTheyHaveNotBeenRequestedWithinTimeout() throws NotFoundException {
+        AtomicLong time = new AtomicLong();
+        GameRepository expiring = new GameRepository(properties(1000, 100, 100, Long.MAX_VALUE), time::get);
+        String idle = expiring.store(game1);
+        String active = expiring.store(game2);
+
+        time.set(600);
+        expiring.getGameById(active);
+        time.set(1200);
+        expiring.evictExpiredGames();
+
+        assertFalse(expiring.containsGame(idle));
+        assertTrue(expiring.containsGame(active));
+        assertEquals(1, expiring.getExpiredCount());
+
+        time.set(1700);
+        expiring.evictExpiredGames();
+        assertEquals(0, expiring.getSize());
+    }
+
+    @Test
+    public void finishedGamesExpireSoonerThanOngoingGames() throws NotFoundException {
+        AtomicLong time = new AtomicLong();
+        GameRepository expiring = new GameRepository(properties(1000, 100, 100, Long.MAX_VALUE), time::get);
+        Game finished = new Game(2, 2, 0);
+        finished.openSquare(0, 0);
+        String finishedId = expiring.store(finished);
+        String ongoingId = expiring.store(game1);
+
+        time.set(200);
+        expiring.evictExpiredGames();
+
+        assertFalse(expiring.containsGame(finishedId));
+        assertTrue(expiring.containsGame(ongoingId));
+    }
+
+    @Test
+    public void gamesFinishedAfterTheirLastRequestExpireWithTheFinishedTimeout() throws NotFoundException {
+        AtomicLong time = new AtomicLong();
+        GameRepository expiring = new GameRepository(properties(1000, 100, 100, Long.MAX_VALUE), time::get);
+        Game game = new Game(2, 2, 0);
+        String id = expiring.store(game);
+
+        expiring.getGameById(id).openSquare(0, 0);
+        time.set(200);
+        expiring.evictExpiredGames();
+
+        assertFalse(expiring.containsGame(id));
+        assertEquals(1, expiring.getExpiredCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedGameIsEvictedWhenGameLimitIsExceeded() throws NotFoundException {
+        AtomicLong time = new AtomicLong();
+        GameRepository limited = new GameRepository(properties(100000, 100000, 2, Long.MAX_VALUE), time::get);
+        String first = limited.store(game1);
+        time.set(1000);
+        String second = limited.store(game2);
+
+        time.set(2000);
+        limited.getGameById(first);
+        time.set(3000);
+        String third = limited.store(new Game(Difficulty.HARD));
+
+        assertEquals(2, limited.getSize());
+        assertTrue(limited.containsGame(first));
+        assertFalse(limited.containsGame(second));
+        assertTrue(limited.containsGame(third));
+        assertEquals(1, limited.getEvictedCount());
+    }
+
+    @Test
+    public void gamesAreEvictedWhenMemoryLimitIsExceeded() {
+        long hardGameBytes = new Game(Difficulty.HARD).estimateMemoryUsage();
+        GameRepository limited = new GameRepository(properties(100000, 100000, 100, hardGameBytes * 3));
+
+        for (int i = 0; i < 10; i++) {
+            limited.store(new Game(Difficulty.HARD));
+        }
+
+        assertEquals(3, limited.getSize());
+        assertEquals(hardGameBytes * 3, limited.getEstimatedBytes());
+        assertEquals(7, limited.getEvictedCount());
+    }
+
+    @Test
+    public void gamesStoredConcurrentlyAreAllFoundWithTheirIds() throws Exception {
+        int threads = 16, gamesPerThread = 500;
+
+        List<List<String>> idsPerThread = runConcurrently(threads, () -> {
+            List<String> ids = new ArrayList<String>();
+            for (int i = 0; i < gamesPerThread; i++) {
+                ids.add(repository.store(new Game(2, 2, 0)));
+            }
+            return ids;
+        });
+
+        assertEquals(threads * gamesPerThread, repository.getSize());
+        for (List<String> ids : idsPerThread) {
+            for (String id : ids) {
+                assertTrue(repository.containsGame(id));
+            }
+        }
+    }
+
+    @Test
+    public void concurrentMovesOnTheSameGameAreAppliedOneAtATime() throws Exception {
+        String id = repository.store(new Game(40, 40, 0));
+        int threads = 16, rounds = 10;
+
+        // Every thread toggles every flag an even number of times in total
+        runConcurrently(threads, () -> {
+            Game game = repository.getGameById(id);
+            Minefield minefield = game.getMinefield();
+            for (int round = 0; round < rounds * 2; round++) {
+                for (int row = 0; row < minefield.getHeight(); row++) {
+                    for (int col = 0; col < minefield.getWidth(); col++) {
+                        game.toggleFlag(minefield.getSquare(row, col));
+                    }
+                }
+            }
+            return null;
+        });
+
+        Minefield minefield = repository.getGameById(id).getMinefield();
+        assertEquals(0, minefield.getFlagCount());
+        assertFalse(minefield.getSquares().containsAny(s -> s.isFlagged()));
+    }
+
+    @Test
+    public void concurrentOpeningsCountEachSquareOnce() throws Exception {
+        String id = repository.store(new Game(30, 30, 0));
+        Game game = repository.getGameById(id);
+        game.getMinefield().getSquare(15, 15).setMine(); // Keeps openings from ending the game early
+
+        List<Integer> openedPerThread = runConcurrently(8, () -> {
+            int opened = 0;
+            for (int col = 0; col < 30; col++) {
+                opened += repository.getGameById(id).openSquare(0, col);
+            }
+            return Integer.valueOf(opened);
+        });
+
+        int totalOpened = openedPerThread.stream().mapToInt(Integer::intValue).sum();
+        assertEquals(game.getMinefield().getOpenCount(), totalOpened);
+        assertTrue(game.isWon());
+    }
+
+    private static RepositoryProperties properties(long idleTimeout, long finishedTimeout, int maxGames, long maxBytes) {
+        RepositoryProperties properties = new RepositoryProperties();
+        properties.setIdleTimeout(idleTimeout);
+        properties.setFinishedTimeout(finishedTimeout);
+        properties.setMaxGames(maxGames);
+        properties.setMaxBytes(maxBytes);
+        return properties;
+    }
+
+    /**
+     * Runs the given task in the given amount of threads, starting them all at
+     * the same time, and returns the results of each thread.
+     */
+    private static <T> List<T> runConcurrently(int threads, Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<T>();
+            for (Future<T> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
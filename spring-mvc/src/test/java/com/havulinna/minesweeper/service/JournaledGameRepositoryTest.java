@@ -0,0 +1,90 @@
+package com.havulinna.minesweeper.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.Difficulty;
+import com.havulinna.minesweeper.model.Game;
+
+public class JournaledGameRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong time = new AtomicLong();
+    private final RepositoryProperties properties = new RepositoryProperties();
+    private Path directory;
+    private JournaledGameRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        properties.setIdleTimeout(1000);
+        properties.setFinishedTimeout(1000);
+        properties.setJournalCompactionBytes(1);
+        directory = folder.newFolder().toPath();
+        repository = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void storedGamesAndTheirMovesAreRecoveredAfterRestart() throws IOException, NotFoundException {
+        Game game = new Game(Difficulty.FAIR);
+        String id = repository.store(game);
+        game.toggleFlag(game.getMinefield().getSquare(3, 4));
+        game.openSquare(0, 0);
+        repository.close();
+
+        repository = open();
+
+        assertEquals(1, repository.getSize());
+        Game recovered = repository.getGameById(id);
+        assertEquals(game.toString(), recovered.toString());
+        assertEquals(1, recovered.getMoves());
+    }
+
+    @Test
+    public void recoveredGamesKeepRecordingMoves() throws IOException, NotFoundException {
+        String id = repository.store(new Game(Difficulty.EASY));
+        repository.close();
+        repository = open();
+
+        Game game = repository.getGameById(id);
+        game.toggleFlag(game.getMinefield().getSquare(1, 1));
+        repository.compactJournal();
+        repository.close();
+        repository = open();
+
+        assertEquals(game.toString(), repository.getGameById(id).toString());
+    }
+
+    @Test
+    public void expiredGamesAreRemovedFromTheJournal() throws IOException {
+        String expired = repository.store(new Game(Difficulty.EASY));
+        time.set(2000);
+        repository.evictExpiredGames();
+        repository.close();
+
+        repository = open();
+        assertFalse(repository.containsGame(expired));
+        assertEquals(0, repository.getSize());
+    }
+
+    private JournaledGameRepository open() throws IOException {
+        return new JournaledGameRepository(properties, directory, time::get);
+    }
+}
@@ -0,0 +1,183 @@
+package com.havulinna.minesweeper.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.havulinna.minesweeper.exception.NotFoundException;
+import com.havulinna.minesweeper.model.Difficulty;
+import com.havulinna.minesweeper.model.Game;
+
+public class MappedGameRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong time = new AtomicLong();
+    private final RepositoryProperties properties = new RepositoryProperties();
+    private Path directory;
+    private MappedGameRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        properties.setIdleTimeout(1000);
+        properties.setFinishedTimeout(1000);
+        directory = folder.newFolder().toPath();
+        repository = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void storedGamesAreRecoveredAfterRestart() throws IOException, NotFoundException {
+        Game game = new Game(Difficulty.FAIR);
+        String id = repository.store(game);
+        game.toggleFlag(game.getMinefield().getSquare(3, 4));
+        repository.close();
+
+        repository = open();
+
+        assertEquals(1, repository.getSize());
+        assertEquals(game.toString(), repository.getGameById(id).toString());
+    }
+
+    @Test
+    public void movesAreWrittenToTheFileAsTheyAreMade() throws IOException, NotFoundException {
+        Game game = new Game(30, 40, 0);
+        game.getMinefield().getSquare(20, 20).setMine();
+        String id = repository.store(game);
+        game.openSquare(0, 0);
+
+        // Opened without closing the first repository, as after a crash
+        try (MappedGameRepository recovered = open()) {
+            Game recoveredGame = recovered.getGameById(id);
+
+            assertEquals(game.toString(), recoveredGame.toString());
+            assertEquals(1, recoveredGame.getMoves());
+            assertTrue(recoveredGame.isWon());
+        }
+    }
+
+    @Test
+    public void gamesWithDeferredMinesAreRecoveredBeforeAndAfterTheFirstMove() throws IOException, NotFoundException {
+        Game game = new Game(Difficulty.FAIR, 5, true);
+        String id = repository.store(game);
+        game.toggleFlag(game.getMinefield().getSquare(0, 1));
+
+        try (MappedGameRepository recovered = open()) {
+            Game recoveredGame = recovered.getGameById(id);
+            assertTrue(recoveredGame.isMinePlacementDeferred());
+            assertTrue(recoveredGame.getMinefield().getSquare(0, 1).isFlagged());
+        }
+
+        game.openSquare(7, 7);
+        try (MappedGameRepository recovered = open()) {
+            Game recoveredGame = recovered.getGameById(id);
+            assertFalse(recoveredGame.isMinePlacementDeferred());
+            assertEquals(game.getMineCount(), recoveredGame.getMinefield().getMineCount());
+            for (int i = 0; i < game.getMinefield().size(); i++) {
+                assertEquals(game.getMinefield().isMine(i), recoveredGame.getMinefield().isMine(i));
+            }
+        }
+    }
+
+    @Test
+    public void seedsAndSafeSquaresOfPlacedMinesAreRecovered() throws IOException, NotFoundException {
+        Game seeded = new Game(Difficulty.EASY, 7);
+        String seededId = repository.store(seeded);
+        Game safeFirstMove = new Game(Difficulty.FAIR, 5, true);
+        String safeFirstMoveId = repository.store(safeFirstMove);
+        safeFirstMove.openSquare(7, 7);
+
+        try (MappedGameRepository recovered = open()) {
+            Game recoveredSeeded = recovered.getGameById(seededId);
+            assertEquals(7, recoveredSeeded.getSeed().getAsLong());
+            assertEquals(-1, recoveredSeeded.getSafeSquare());
+
+            Game recoveredSafeFirstMove = recovered.getGameById(safeFirstMoveId);
+            assertFalse(recoveredSafeFirstMove.isMinePlacementDeferred());
+            assertEquals(5, recoveredSafeFirstMove.getSeed().getAsLong());
+            assertEquals(safeFirstMove.getSafeSquare(), recoveredSafeFirstMove.getSafeSquare());
+            assertEquals(safeFirstMove.toString(), recoveredSafeFirstMove.toString());
+        }
+    }
+
+    @Test
+    public void gamesOfDifferentSizesAreStoredSideBySide() throws IOException, NotFoundException {
+        String easy = repository.store(new Game(Difficulty.EASY));
+        String large = repository.store(new Game(300, 400, 1000));
+        repository.close();
+
+        repository = open();
+
+        assertEquals(10, repository.getGameById(easy).getMinefield().getWidth());
+        assertEquals(400, repository.getGameById(large).getMinefield().getWidth());
+        assertEquals(1000, repository.getGameById(large).getMinefield().getMineCount());
+    }
+
+    @Test
+    public void recoveredGamesAreReadOnlyWhenRequested() throws IOException, NotFoundException {
+        String id = repository.store(new Game(Difficulty.HARD));
+        repository.close();
+
+        repository = open();
+        assertTrue(repository.containsGame(id));
+
+        Game game = repository.getGameById(id);
+        assertTrue(game == repository.getGameById(id));
+    }
+
+    @Test
+    public void expiredGamesAreRemovedFromTheFile() throws IOException {
+        String expired = repository.store(new Game(Difficulty.EASY));
+        time.set(2000);
+        repository.evictExpiredGames();
+        repository.close();
+
+        repository = open();
+        assertFalse(repository.containsGame(expired));
+        assertEquals(0, repository.getSize());
+    }
+
+    @Test
+    public void gamesEvictedOverTheMemoryLimitAreUnloadedAndKeptInTheFile() throws IOException, NotFoundException {
+        long easyBytes = new Game(Difficulty.EASY).estimateMemoryUsage();
+        properties.setMaxBytes(easyBytes * 3 / 2);
+        repository.close();
+        repository = open();
+
+        Game first = new Game(Difficulty.EASY);
+        String firstId = repository.store(first);
+        first.toggleFlag(first.getMinefield().getSquare(2, 3));
+        Game second = new Game(Difficulty.EASY);
+        String secondId = repository.store(second);
+
+        assertEquals(1, repository.getEvictedCount());
+        assertEquals(easyBytes, repository.getEstimatedBytes());
+        assertTrue(repository.containsGame(firstId));
+        assertEquals(first.toString(), repository.getGameById(firstId).toString());
+        repository.close();
+
+        repository = open();
+        assertEquals(2, repository.getSize());
+        assertEquals(first.toString(), repository.getGameById(firstId).toString());
+        assertEquals(second.toString(), repository.getGameById(secondId).toString());
+    }
+
+    private MappedGameRepository open() throws IOException {
+        return new MappedGameRepository(properties, directory, time::get);
+    }
+}
@@ -1,14 +1,25 @@
 package com.havulinna.minesweeper.view;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.Test;
 
 import com.havulinna.minesweeper.model.Game;
 import com.havulinna.minesweeper.model.Minefield;
+import com.havulinna.minesweeper.model.Move;
+import com.havulinna.minesweeper.model.Square;
 import com.havulinna.minesweeper.util.GameBuilder;
+import com.havulinna.minesweeper.util.SquareBuilder;
 
 
 public class GameViewTest {
@@ -17,6 +28,14 @@ public class GameViewTest {
     private Game wonGame = new GameBuilder().setWon().build();
     private Game ongoingGame = new GameBuilder().build();
 
+    private Square flaggedSquare = new SquareBuilder().setFlagged().build();
+
+    private Square closedMine = new SquareBuilder().setMine().build();
+    private Square openMine = new SquareBuilder().setMine().setOpen().build();
+
+    private Square openSquare = new SquareBuilder().setOpen().build();
+    private Square closedSquare = new SquareBuilder().build();
+
 
     @Test
     public void gameOverMessageShownForLostGame() {
@@ -34,34 +53,173 @@ public class GameViewTest {
     }
 
     @Test
-    public void getRowsReturnsEachRowAsItsOwnList() {
+    public void boardRowsHaveACellForEachSquare() {
         Game game = new GameBuilder().setMinefield(new Minefield(3, 4)).build();
         GameView view = new GameView(game);
 
-        List<List<SquareView>> rows = view.getRows();
+        List<String> rows = rowsOf(view, Move.Type.OPEN);
 
         assertEquals(3, rows.size());
-        assertEquals(4, rows.get(0).size());
+        assertEquals(4, rows.get(0).split("<td ", -1).length - 1);
     }
 
     @Test
-    public void verifySquaresAreInRightPositionsInNestedLists() {
+    public void boardButtonsAreReadBackAsMovesOnTheirOwnSquares() {
         Minefield minefield_3x4 = new Minefield(3, 4);
         Game game = new GameBuilder().setMinefield(minefield_3x4).build();
 
-        GameView view = new GameView(game);
-
-        List<List<SquareView>> rows = view.getRows();
+        List<String> rows = rowsOf(new GameView(game), Move.Type.FLAG);
         for (int row = 0; row < minefield_3x4.getHeight(); row++) {
+            Matcher values = Pattern.compile("value=\"(\\w+)\"").matcher(rows.get(row));
             for (int col = 0; col < minefield_3x4.getWidth(); col++) {
-                SquareView currentSquare = rows.get(row).get(col);
-
-                assertEquals(row, currentSquare.getRow());
-                assertEquals(col, currentSquare.getCol());
+                assertTrue(values.find());
+                assertEquals(Move.flag(row, col), GameView.moveOf(values.group(1), minefield_3x4));
             }
         }
     }
 
+    @Test
+    public void squareIsDisabledWhenGameHasEnded() {
+        verifySquareIsDisabled(closedSquare, lostGame);
+        verifySquareIsDisabled(closedMine, lostGame);
+    }
+
+    @Test
+    public void squareIsDisabledWhenSquareIsOpen() {
+        verifySquareIsDisabled(openSquare, lostGame);
+        verifySquareIsDisabled(openSquare, ongoingGame);
+    }
+
+    @Test
+    public void squareIsEnabledWhenSquareIsClosedAndGameNotEnded() {
+        verifySquareIsEnabled(closedSquare, ongoingGame);
+        verifySquareIsEnabled(closedMine, ongoingGame);
+    }
+
+    @Test
+    public void openSquaresWithMinesNextToThemAreChordableUntilTheGameEnds() {
+        Game game = new Game(2, 2, 0);
+        game.getMinefield().getSquare(0, 0).setMine();
+        game.openSquare(1, 1);
+
+        String secondRow = rowsOf(new GameView(game), Move.Type.OPEN).get(1);
+        assertTrue(secondRow.contains("value=\"C3\""));
+        assertFalse(secondRow.contains("value=\"C2\""));
+
+        game.openSquare(0, 0);
+        assertFalse(rowsOf(new GameView(game), Move.Type.OPEN).get(1).contains("value=\"C3\""));
+    }
+
+    @Test
+    public void mineCssClassAddedOnlyWhenGameIsLost() {
+        verifyNoCssClass(SquareView.MINE_CSS_CLASS, closedMine, ongoingGame);
+        verifyNoCssClass(SquareView.MINE_CSS_CLASS, closedMine, wonGame);
+
+        verifyHasCssClass(SquareView.MINE_CSS_CLASS, closedMine, lostGame);
+        verifyHasCssClass(SquareView.MINE_CSS_CLASS, openMine, lostGame);
+    }
+
+    @Test
+    public void openSquaresHaveOpenCssClass() {
+        verifyHasCssClass(SquareView.OPEN_CSS_CLASS, openSquare, ongoingGame);
+        verifyHasCssClass(SquareView.OPEN_CSS_CLASS, openSquare, lostGame);
+        verifyHasCssClass(SquareView.OPEN_CSS_CLASS, openMine, lostGame);
+    }
+
+    @Test
+    public void closedSquaresHaveClosedCssClass() {
+        verifyHasCssClass(SquareView.CLOSED_CSS_CLASS, closedSquare, ongoingGame);
+        verifyHasCssClass(SquareView.CLOSED_CSS_CLASS, closedSquare, lostGame);
+        verifyHasCssClass(SquareView.CLOSED_CSS_CLASS, closedMine, lostGame);
+    }
+
+    @Test
+    public void flaggedSquaresHaveFlaggedCssClass() {
+        verifyHasCssClass(SquareView.FLAGGED_CSS_CLASS, flaggedSquare, ongoingGame);
+        verifyHasCssClass(SquareView.FLAGGED_CSS_CLASS, flaggedSquare, lostGame);
+    }
+
+    @Test
+    public void boardRowsRenderEachSquareAsACell() {
+        Minefield minefield = new Minefield(2, 3);
+        minefield.getSquare(0, 0).setMine();
+        Game game = new Game(minefield, 0);
+        game.openSquare(1, 2);
+        game.toggleFlag(minefield.getSquare(0, 0));
+
+        List<String> rows = rowsOf(new GameView(game), Move.Type.OPEN);
+
+        assertEquals(2, rows.size());
+        assertEquals("<td class=\"square closed flagged\"><button name=\"square\" value=\"O0\">?</button></td>"
+                + "<td class=\"square open\"><button name=\"square\" value=\"C1\">1</button></td>"
+                + "<td class=\"square open\"><button disabled=\"disabled\"> </button></td>", rows.get(0));
+        assertEquals("<td class=\"square closed\"><button name=\"square\" value=\"O3\"> </button></td>"
+                + "<td class=\"square open\"><button name=\"square\" value=\"C4\">1</button></td>"
+                + "<td class=\"square open\"><button disabled=\"disabled\"> </button></td>", rows.get(1));
+    }
+
+    @Test
+    public void boardRowsOfALostGameShowTheMinesAndDisableEverySquare() {
+        Minefield minefield = new Minefield(1, 3);
+        minefield.getSquare(0, 0).setMine();
+        minefield.getSquare(0, 2).setMine();
+        Game game = new Game(minefield, 0);
+        game.toggleFlag(minefield.getSquare(0, 2));
+        game.openSquare(0, 0);
+
+        assertEquals("<td class=\"square open mine\"><button disabled=\"disabled\">⁕</button></td>"
+                + "<td class=\"square closed\"><button disabled=\"disabled\"> </button></td>"
+                + "<td class=\"square closed mine flagged\"><button disabled=\"disabled\">⁕</button></td>",
+                rowsOf(new GameView(game), Move.Type.OPEN).get(0));
+    }
+
+    @Test
+    public void boardButtonValuesAreReadBackAsMoves() {
+        Minefield minefield = new Minefield(3, 4);
+
+        assertEquals(Move.open(0, 0), GameView.moveOf("O0", minefield));
+        assertEquals(Move.flag(2, 1), GameView.moveOf("F9", minefield));
+        assertEquals(Move.chord(2, 3), GameView.moveOf("C11", minefield));
+        assertNull(GameView.moveOf("O12", minefield));
+        assertNull(GameView.moveOf("X1", minefield));
+        assertNull(GameView.moveOf("O", minefield));
+        assertNull(GameView.moveOf("O-1", minefield));
+        assertNull(GameView.moveOf("O99999999999", minefield));
+    }
+
+    @Test
+    public void viewIsASnapshotOfTheGame() {
+        Game game = new Game(new Minefield(2, 2), 0);
+        GameView view = new GameView(game);
+
+        game.openSquare(0, 0);
+
+        assertEquals(0, view.getMoves());
+        assertEquals(GameView.State.ON, view.getState());
+        assertTrue(rowsOf(view, Move.Type.OPEN).get(0).contains("value=\"O0\""));
+        assertEquals(GameView.State.WON, new GameView(game).getState());
+    }
+
+    @Test
+    public void boardRowsAreRenderedAgainOnEachIteration() {
+        GameView view = new GameView(new Game(new Minefield(2, 2), 0));
+        Iterable<String> rows = view.getBoardRows(Move.Type.OPEN);
+
+        Iterator<String> first = rows.iterator();
+        Iterator<String> second = rows.iterator();
+        assertEquals(first.next(), second.next());
+        assertTrue(first.next().contains("value=\"O3\""));
+        assertFalse(first.hasNext());
+        assertEquals(Arrays.asList(second.next()), rowsOf(view, Move.Type.OPEN).subList(1, 2));
+    }
+
+    private static List<String> rowsOf(GameView view, Move.Type mode) {
+        List<String> rows = new ArrayList<String>();
+        for (String row : view.getBoardRows(mode)) {
+            rows.add(row);
+        }
+        return rows;
+    }
 
     /**
      * Creates a GameView for the given game, and verifies that the status text
@@ -72,4 +230,40 @@ public class GameViewTest {
         GameView view = new GameView(game);
         assertEquals(expectedStatus, view.getStatusText());
     }
+
+    /**
+     * Renders the cell of the given square, which is the only square of its
+     * minefield, on a game of the state of the given game.
+     */
+    private static String cellOf(Square square, Game stateOfGame) {
+        GameBuilder builder = new GameBuilder().setMinefield(square.getMinefield());
+        if (stateOfGame.isLost()) {
+            builder.setLost();
+        } else if (stateOfGame.isWon()) {
+            builder.setWon();
+        }
+        return rowsOf(new GameView(builder.build()), Move.Type.OPEN).get(0);
+    }
+
+    private static void verifySquareIsEnabled(Square square, Game game) {
+        assertFalse(cellOf(square, game).contains("disabled"));
+    }
+
+    private static void verifySquareIsDisabled(Square square, Game game) {
+        assertTrue(cellOf(square, game).contains("disabled=\"disabled\""));
+    }
+
+    private static void verifyHasCssClass(String expectedClass, Square square, Game game) {
+        assertTrue(cssClassesOf(cellOf(square, game)).contains(expectedClass));
+    }
+
+    private static void verifyNoCssClass(String disallowedCssClass, Square square, Game game) {
+        assertFalse(cssClassesOf(cellOf(square, game)).contains(disallowedCssClass));
+    }
+
+    private static List<String> cssClassesOf(String cell) {
+        Matcher classes = Pattern.compile("class=\"([^\"]*)\"").matcher(cell);
+        assertTrue(classes.find());
+        return Arrays.asList(classes.group(1).split(" "));
+    }
 }
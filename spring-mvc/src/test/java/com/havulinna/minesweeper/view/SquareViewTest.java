@@ -1,93 +1,83 @@
 package com.havulinna.minesweeper.view;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
 import org.junit.Test;
 
-import com.havulinna.minesweeper.model.Game;
-import com.havulinna.minesweeper.model.Square;
-import com.havulinna.minesweeper.util.GameBuilder;
-import com.havulinna.minesweeper.util.SquareBuilder;
+import com.havulinna.minesweeper.model.EndlessGame;
 
 public class SquareViewTest {
 
-    private Game ongoingGame = new GameBuilder().build();
-    private Game wonGame = new GameBuilder().setWon().build();
-    private Game lostGame = new GameBuilder().setLost().build();
-
-    private Square flaggedSquare = new SquareBuilder().setFlagged().build();
-
-    private Square closedMine = new SquareBuilder().setMine().build();
-    private Square openMine = new SquareBuilder().setMine().setOpen().build();
-
-    private Square openSquare = new SquareBuilder().setOpen().build();
-    private Square closedSquare = new SquareBuilder().build();
-
+    private EndlessGame game = new EndlessGame(3, 0.5);
+
+    /** The column of the first mine on the tenth row, and of a closed square without one */
+    private int mineCol;
+    private int closedCol;
+
+    @Before
+    public void findSquares() {
+        mineCol = 10;
+        while (!game.getMinefield().isMine(10, mineCol)) {
+            mineCol++;
+        }
+        closedCol = mineCol + 1;
+        while (game.getMinefield().isMine(10, closedCol)) {
+            closedCol++;
+        }
+    }
 
     @Test
-    public void viewIsDisabledWhenGameHasEnded() {
-        verifyViewIsDisabled(closedSquare, lostGame);
-        verifyViewIsDisabled(closedMine, lostGame);
+    public void viewIsEnabledWhenSquareIsClosedAndGameNotEnded() {
+        assertFalse(new SquareView(game, 10, mineCol).isDisabled());
+        assertFalse(new SquareView(game, 10, closedCol).isDisabled());
     }
 
     @Test
     public void viewIsDisabledWhenSquareIsOpen() {
-        verifyViewIsDisabled(openSquare, lostGame);
+        game.openSquare(0, 0);
+        assertTrue(new SquareView(game, 0, 0).isDisabled());
     }
 
     @Test
-    public void viewIsEnabledWhenSquareIsClosedAndGameNotEnded() {
-        verifyViewIsEnabled(closedSquare, ongoingGame);
-        verifyViewIsEnabled(closedMine, ongoingGame);
+    public void viewIsDisabledWhenGameHasEnded() {
+        game.openSquare(10, mineCol);
+        assertTrue(new SquareView(game, 10, closedCol).isDisabled());
     }
 
     @Test
     public void mineCssClassAddedOnlyWhenGameIsLost() {
-        verifyNoCssClass(SquareView.MINE_CSS_CLASS, closedMine, ongoingGame);
-        verifyNoCssClass(SquareView.MINE_CSS_CLASS, closedMine, wonGame);
+        assertFalse(cssClassesOf(10, mineCol).contains(SquareView.MINE_CSS_CLASS));
 
-        verifyHasCssClass(SquareView.MINE_CSS_CLASS, closedMine, lostGame);
-        verifyHasCssClass(SquareView.MINE_CSS_CLASS, openMine, lostGame);
+        game.openSquare(10, mineCol);
+        assertTrue(cssClassesOf(10, mineCol).contains(SquareView.MINE_CSS_CLASS));
+        assertTrue(cssClassesOf(10, mineCol).contains(SquareView.OPEN_CSS_CLASS));
+        assertFalse(cssClassesOf(10, closedCol).contains(SquareView.MINE_CSS_CLASS));
     }
 
     @Test
-    public void openSquaresHaveOpenCssClass() {
-        verifyHasCssClass(SquareView.OPEN_CSS_CLASS, openSquare, ongoingGame);
-        verifyHasCssClass(SquareView.OPEN_CSS_CLASS, openSquare, lostGame);
-        verifyHasCssClass(SquareView.OPEN_CSS_CLASS, openMine, lostGame);
-    }
+    public void openAndClosedSquaresHaveTheirCssClasses() {
+        game.openSquare(0, 0);
 
-    @Test
-    public void closedSquaresHaveClosedCssClass() {
-        verifyHasCssClass(SquareView.CLOSED_CSS_CLASS, closedSquare, ongoingGame);
-        verifyHasCssClass(SquareView.CLOSED_CSS_CLASS, closedSquare, lostGame);
-        verifyHasCssClass(SquareView.CLOSED_CSS_CLASS, closedMine, lostGame);
+        assertEquals(Arrays.asList(SquareView.OPEN_CSS_CLASS), cssClassesOf(0, 0));
+        assertEquals(Arrays.asList(SquareView.CLOSED_CSS_CLASS), cssClassesOf(10, closedCol));
     }
 
     @Test
-    public void flaggedSquaresHaveFlaggedCssClass() {
-        verifyHasCssClass(SquareView.FLAGGED_CSS_CLASS, flaggedSquare, ongoingGame);
-        verifyHasCssClass(SquareView.FLAGGED_CSS_CLASS, flaggedSquare, lostGame);
-    }
-
-    private static void verifyViewIsEnabled(Square square, Game game) {
-        SquareView squareView = new SquareView(square, game);
-        assertFalse(squareView.isDisabled());
-    }
-
-    private static void verifyViewIsDisabled(Square square, Game game) {
-        SquareView squareView = new SquareView(square, game);
-        assertTrue(squareView.isDisabled());
-    }
+    public void flaggedSquaresHaveFlaggedCssClassAndSymbol() {
+        game.toggleFlag(10, closedCol);
 
-    private static void verifyHasCssClass(String expectedClass, Square square, Game game) {
-        SquareView view = new SquareView(square, game);
-        assertTrue(view.getCssClass().contains(expectedClass));
+        assertEquals(Arrays.asList(SquareView.CLOSED_CSS_CLASS, SquareView.FLAGGED_CSS_CLASS),
+                cssClassesOf(10, closedCol));
+        assertEquals("?", new SquareView(game, 10, closedCol).getText());
     }
 
-    private static void verifyNoCssClass(String disallowedCssClass, Square square, Game game) {
-        SquareView view = new SquareView(square, game);
-        assertFalse(view.getCssClass().contains(disallowedCssClass));
+    private List<String> cssClassesOf(int row, int col) {
+        return Arrays.asList(new SquareView(game, row, col).getCssClass().split(" "));
     }
 }